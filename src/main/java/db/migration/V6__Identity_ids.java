@@ -0,0 +1,52 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Переводит users.id и films.id в столбцы GENERATED BY DEFAULT AS IDENTITY и продолжает генерацию с MAX(id) + 1.
+ * В базе, созданной старым schema.sql, id - обычный первичный ключ без генерации, и V1 (CREATE TABLE IF NOT EXISTS)
+ * его не меняет, поэтому без этой миграции вставка без явного id падает.
+ * Миграция на Java, потому что начальное значение последовательности зависит от данных.
+ */
+@SuppressWarnings("checkstyle:TypeName")
+public class V6__Identity_ids extends BaseJavaMigration {
+    private static final List<String> TABLES = List.of("users", "films");
+    private static final String IS_IDENTITY = "SELECT IS_IDENTITY FROM INFORMATION_SCHEMA.COLUMNS "
+            + "WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = ? AND COLUMN_NAME = 'ID'";
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        for (String table : TABLES) {
+            try (Statement statement = connection.createStatement()) {
+                if (!isIdentity(connection, table)) {
+                    statement.execute(String.format("ALTER TABLE %s ALTER COLUMN id SET GENERATED BY DEFAULT", table));
+                }
+                long maxId;
+                try (ResultSet rs = statement.executeQuery(String.format("SELECT COALESCE(MAX(id), 0) FROM %s", table))) {
+                    rs.next();
+                    maxId = rs.getLong(1);
+                }
+                statement.execute(String.format("ALTER TABLE %s ALTER COLUMN id RESTART WITH %d", table, maxId + 1));
+            }
+        }
+    }
+
+    private static boolean isIdentity(Connection connection, String table) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(IS_IDENTITY)) {
+            ps.setString(1, table.toUpperCase(Locale.ROOT));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && "YES".equals(rs.getString(1));
+            }
+        }
+    }
+}
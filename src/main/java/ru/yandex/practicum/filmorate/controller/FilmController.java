@@ -1,16 +1,20 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
 @Slf4j
 @RestController
@@ -20,16 +24,41 @@ import java.util.Set;
 public class FilmController {
 
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public FilmController(FilmService filmStorage) {
+    public FilmController(FilmService filmStorage, ObjectMapper objectMapper) {
         this.filmService = filmStorage;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public Collection<Film> getFilms() {
-        log.info("Получен запрос на получение списка всех фильмов");
-        return filmService.getAllFilms();
+    public Collection<Film> getFilms(@RequestParam(required = false) Integer after, @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            log.info("Получен запрос на получение списка всех фильмов");
+            return filmService.getAllFilms();
+        }
+        log.info("Получен запрос на получение страницы фильмов после фильма с id = {}", after);
+        return filmService.getFilmsPage(after, limit);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFilms() {
+        log.info("Получен запрос на потоковую выгрузку всех фильмов");
+        return NdjsonResponses.stream(objectMapper, filmService::streamFilms);
+    }
+
+    @GetMapping(params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamFilmsByFormat() {
+        return streamFilms();
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String q,
+                                  @RequestParam(required = false, defaultValue = "name,description") String by,
+                                  @RequestParam(required = false, defaultValue = "10") Integer count) {
+        log.info("Получен запрос на поиск фильмов по запросу \"{}\"", q);
+        return filmService.searchFilms(q, by, count);
     }
 
     @GetMapping("/{film-id}")
@@ -57,13 +86,23 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(required = false, defaultValue = "10") Integer count) {
-        log.info("Получен запрос на вывод самых популярных фильмов");
-        return filmService.getPopularFilms(count);
+    public List<Film> getPopularFilms(@RequestParam(required = false, defaultValue = "10") Integer count,
+                                      @RequestParam(required = false) Integer genreId,
+                                      @RequestParam(required = false) Integer mpaId,
+                                      @RequestParam(required = false) Integer year) {
+        log.info("Получен запрос на вывод самых популярных фильмов с жанром {}, MPA {} и годом выпуска {}", genreId, mpaId, year);
+        return filmService.getPopularFilms(count, genreId, mpaId, year);
+    }
+
+    @GetMapping("/{id}/likes")
+    public List<User> getUserLikesOnFilm(@PathVariable Integer id, @RequestParam(required = false) Integer after,
+                                         @RequestParam(required = false) Integer limit) {
+        log.info("Получен запрос на получение пользователей, которые поставили лайк фильму с id = {}", id);
+        return filmService.getUserLikesOnFilm(id, after, limit);
     }
 
     @PutMapping("/{id}/like/{user-id}")
-    public Set<Integer> addLikeToFilm(@PathVariable Integer id, @PathVariable("user-id") Integer userId) {
+    public Integer addLikeToFilm(@PathVariable Integer id, @PathVariable("user-id") Integer userId) {
         log.info("Получен запрос на добавление лайка пользователем c id = {} фильму с id = {}", userId, id);
         return filmService.addLikeToFilm(id, userId);
     }
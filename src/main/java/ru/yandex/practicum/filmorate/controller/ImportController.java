@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.service.ImportService;
+
+import java.io.InputStream;
+
+@Slf4j
+@RestController
+@RequestMapping("/import")
+public class ImportController {
+
+    private final ImportService importService;
+
+    @Autowired
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    @PostMapping(value = "/films", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportReport importFilms(InputStream body) {
+        log.info("Получен запрос на массовую загрузку фильмов");
+        return importService.importFilms(body);
+    }
+
+    @PostMapping(value = "/users", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportReport importUsers(InputStream body) {
+        log.info("Получен запрос на массовую загрузку пользователей");
+        return importService.importUsers(body);
+    }
+
+    @PostMapping(value = "/likes", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportReport importLikes(InputStream body) {
+        log.info("Получен запрос на массовую загрузку лайков");
+        return importService.importLikes(body);
+    }
+
+    @PostMapping(value = "/friends", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportReport importFriendships(InputStream body) {
+        log.info("Получен запрос на массовую загрузку дружбы пользователей");
+        return importService.importFriendships(body);
+    }
+}
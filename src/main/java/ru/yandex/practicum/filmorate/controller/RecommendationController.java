@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping("/users/{user-id}/recommendations")
+public class RecommendationController {
+
+    private final FilmService filmService;
+    private final UserService userService;
+
+    @Autowired
+    public RecommendationController(FilmService filmService, UserService userService) {
+        this.filmService = filmService;
+        this.userService = userService;
+    }
+
+    @GetMapping("/films")
+    public List<Film> getRecommendedFilms(@PathVariable("user-id") Integer userId,
+                                          @RequestParam(required = false, defaultValue = "10") Integer count) {
+        log.info("Получен запрос на получение рекомендуемых фильмов для пользователя с id = {}", userId);
+        return filmService.getRecommendedFilms(userId, count);
+    }
+
+    @GetMapping("/friends")
+    public List<User> getRecommendedFriends(@PathVariable("user-id") Integer userId,
+                                            @RequestParam(required = false, defaultValue = "10") Integer count) {
+        log.info("Получен запрос на получение рекомендуемых друзей для пользователя с id = {}", userId);
+        return userService.getRecommendedFriends(userId, count);
+    }
+}
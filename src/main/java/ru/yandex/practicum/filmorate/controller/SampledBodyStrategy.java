@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Стратегия Logbook, при которой тела запроса и ответа буферизуются и записываются в лог только у выбранной
+ * случайно доли запросов (filmorate.logging.body-sample-rate), а у остальных логируются метод, адрес, статус и заголовки.
+ * Решение принимается один раз на запрос в этом же фильтре, который стоит раньше фильтра Logbook, и хранится
+ * в атрибуте запроса, поэтому оно сохраняется и при асинхронной обработке, когда ответ пишется в другом потоке.
+ * Стратегия получает атрибут через текущий запрос фильтра, который виден только на время вызова цепочки фильтров.
+ * Тела NDJSON (массовая загрузка и потоковая выгрузка) не буферизуются никогда, чтобы память не зависела от объема данных.
+ * Сам журнал Logbook пишет на уровне TRACE; уровень можно изменить во время работы через JMX (эндпоинт loggers).
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SampledBodyStrategy extends OncePerRequestFilter implements Strategy {
+    private static final String BODY_SAMPLED_ATTRIBUTE = SampledBodyStrategy.class.getName() + ".BODY_SAMPLED";
+    private static final String NDJSON_FORMAT = "format=ndjson";
+    private static final ThreadLocal<HttpServletRequest> CURRENT_REQUEST = new ThreadLocal<>();
+    private final double sampleRate;
+
+    @Autowired
+    public SampledBodyStrategy(@Value("${filmorate.logging.body-sample-rate:0.01}") double sampleRate) {
+        this.sampleRate = sampleRate;
+        log.info("Тела HTTP-запросов и ответов логируются у доли запросов {}", sampleRate);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (request.getAttribute(BODY_SAMPLED_ATTRIBUTE) == null) {
+            request.setAttribute(BODY_SAMPLED_ATTRIBUTE, ThreadLocalRandom.current().nextDouble() < sampleRate);
+        }
+        HttpServletRequest previous = CURRENT_REQUEST.get();
+        CURRENT_REQUEST.set(request);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (previous == null) {
+                CURRENT_REQUEST.remove();
+            } else {
+                CURRENT_REQUEST.set(previous);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected boolean shouldNotFilterErrorDispatch() {
+        return false;
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        HttpServletRequest servletRequest = CURRENT_REQUEST.get();
+        return isBodySampled(servletRequest) && !isNdjsonUpload(servletRequest) ? request.withBody() : request.withoutBody();
+    }
+
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+        HttpServletRequest servletRequest = CURRENT_REQUEST.get();
+        return isBodySampled(servletRequest) && !isNdjsonDownload(servletRequest) ? response.withBody() : response.withoutBody();
+    }
+
+    private static boolean isBodySampled(HttpServletRequest request) {
+        return request != null && Boolean.TRUE.equals(request.getAttribute(BODY_SAMPLED_ATTRIBUTE));
+    }
+
+    /**
+     * Массовая загрузка: тело запроса читается потоком по частям и может быть сколь угодно большим.
+     */
+    private static boolean isNdjsonUpload(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.startsWith(MediaType.APPLICATION_NDJSON_VALUE);
+    }
+
+    /**
+     * Потоковая выгрузка всех фильмов или пользователей: копия ответа в памяти росла бы вместе с таблицей.
+     */
+    private static boolean isNdjsonDownload(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        String query = request.getQueryString();
+        return accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE)
+                || query != null && query.contains(NDJSON_FORMAT);
+    }
+}
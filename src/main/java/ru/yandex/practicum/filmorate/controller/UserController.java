@@ -1,10 +1,14 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
@@ -20,17 +24,34 @@ import java.util.Map;
 public class UserController {
 
     private final UserService userService;
+    private final ObjectMapper objectMapper;
     Map<Integer, User> baseOfUsers = new HashMap<>();
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public Collection<User> getUsers() {
-        log.info("Получен запрос на получение всех пользователей");
-        return userService.getUsers();
+    public Collection<User> getUsers(@RequestParam(required = false) Integer after, @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            log.info("Получен запрос на получение всех пользователей");
+            return userService.getUsers();
+        }
+        log.info("Получен запрос на получение страницы пользователей после пользователя с id = {}", after);
+        return userService.getUsersPage(after, limit);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        log.info("Получен запрос на потоковую выгрузку всех пользователей");
+        return NdjsonResponses.stream(objectMapper, userService::streamUsers);
+    }
+
+    @GetMapping(params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamUsersByFormat() {
+        return streamUsers();
     }
 
     @GetMapping("/{user-id}")
@@ -64,9 +85,14 @@ public class UserController {
     }
 
     @GetMapping("/{user-id}/friends")
-    public Collection<User> getUserFriends(@PathVariable("user-id") Integer userId) {
-        log.info("Получен запрос на получение списка друзей пользователя с id = {}", userId);
-        return userService.getUserFriends(userId);
+    public Collection<User> getUserFriends(@PathVariable("user-id") Integer userId, @RequestParam(required = false) Integer after,
+                                           @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            log.info("Получен запрос на получение списка друзей пользователя с id = {}", userId);
+            return userService.getUserFriends(userId);
+        }
+        log.info("Получен запрос на получение страницы друзей пользователя с id = {} после друга с id = {}", userId, after);
+        return userService.getUserFriendsPage(userId, after, limit);
     }
 
     @GetMapping("/{user-id}/friends/common/{otherUser-id}")
@@ -75,7 +101,6 @@ public class UserController {
         return userService.getCommonFriends(userId, otherUserId);
     }
 
-
     @PutMapping()
     public User updateUser(@Valid @RequestBody User newUser) {
         log.info("Получен запрос на обновление пользователя с id = {}", newUser.getId());
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.mappers;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.sql.Date;
 import java.sql.ResultSet;
@@ -21,6 +22,11 @@ public class FilmRowMapper implements RowMapper<Film> {
         Date releasedDate = rs.getDate("releaseDate");
         film.setReleaseDate(releasedDate.toLocalDate());
 
+        int mpaId = rs.getInt("MPA_id");
+        if (!rs.wasNull()) {
+            film.setMpa(new Mpa(mpaId, rs.getString("mpa_name"), rs.getString("mpa_description")));
+        }
+
         return film;
     }
 }
@@ -9,7 +9,7 @@ import lombok.Data;
 import lombok.experimental.FieldDefaults;
 
 import java.time.LocalDate;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 @Data
@@ -23,7 +23,7 @@ public class Film {
     LocalDate releaseDate;
     @Positive(message = "Продолжительность фильма должна быть положительным числом!")
     Integer duration;
-    Set<Genre> genres = new HashSet<>();
+    Set<Genre> genres = new LinkedHashSet<>();
     @NotNull(message = "рейтинг Ассоциации кинокомпаний не может быть пустым!")
     Mpa mpa;
 
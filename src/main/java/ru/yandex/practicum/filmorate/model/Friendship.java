@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@AllArgsConstructor
+@NoArgsConstructor
+public class Friendship {
+    @NotNull(message = "Id пользователя не может быть пустым!")
+    Integer userId;
+    @NotNull(message = "Id друга не может быть пустым!")
+    Integer friendId;
+    boolean confirmed;
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ImportReport {
+    final String entity;
+    long rows;
+    long durationMs;
+    double rowsPerSecond;
+    final List<ImportChunkReport> chunks = new ArrayList<>();
+
+    public void addChunk(ImportChunkReport chunk) {
+        chunks.add(chunk);
+        rows += chunk.getRows();
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@AllArgsConstructor
+@NoArgsConstructor
+public class Like {
+    @NotNull(message = "Id фильма не может быть пустым!")
+    Integer filmId;
+    @NotNull(message = "Id пользователя не может быть пустым!")
+    Integer userId;
+}
@@ -14,8 +14,7 @@ import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -38,21 +37,25 @@ public class FilmService {
 
     public Film createFilm(Film film) {
         log.info("Началось создание фильма");
-        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
-            log.error(errorMessageOfReleaseDate);
-            throw new ValidationException(errorMessageOfReleaseDate);
-        }
-        film.setId(getNewId());
+        checkReleaseDate(film.getReleaseDate());
         filmStorage.addFilm(film);
         log.info("Фильм с id = {} создан и добавлен в базу", film.getId());
         return film;
     }
 
+    public void checkReleaseDate(LocalDate releaseDate) {
+        if (releaseDate == null || releaseDate.isBefore(LocalDate.of(1895, 12, 28))) {
+            log.error(errorMessageOfReleaseDate);
+            throw new ValidationException(errorMessageOfReleaseDate);
+        }
+    }
+
     public Film getFilm(Integer filmId) {
         log.info("Началось получение фильма");
-        if (filmStorage.getFilm(filmId) != null) {
+        Film film = filmStorage.getFilm(filmId);
+        if (film != null) {
             log.info("Получен фильм с id = {}", filmId);
-            return filmStorage.getFilm(filmId);
+            return film;
         } else {
             log.error(errorMessageOfFindFilmForLog, filmId);
             throw new NotFoundException(String.format(errorMessageOfFindFilmForException, filmId));
@@ -64,6 +67,25 @@ public class FilmService {
         return filmStorage.getBaseOfFilms();
     }
 
+    public List<Film> getFilmsPage(Integer after, Integer limit) {
+        log.info("Возвращена страница фильмов после фильма с id = {}", after);
+        return filmStorage.getFilmsPage(Pagination.after(after), Pagination.limit(limit));
+    }
+
+    public List<User> getUserLikesOnFilm(Integer filmId, Integer after, Integer limit) {
+        log.info("Началось получение пользователей, которые поставили лайк фильму с id = {}", filmId);
+        if (filmStorage.getFilm(filmId) == null) {
+            log.error(errorMessageOfFindFilmForLog, filmId);
+            throw new NotFoundException(String.format(errorMessageOfFindFilmForException, filmId));
+        }
+        return filmStorage.getUserLikesOnFilmPage(filmId, Pagination.after(after), Pagination.limit(limit));
+    }
+
+    public void streamFilms(Consumer<Film> consumer) {
+        log.info("Началась потоковая выгрузка всех фильмов");
+        filmStorage.streamFilms(consumer);
+    }
+
     public Film updateFilm(Film newFilm) {
         log.info("Началось обновление фильма");
         if (newFilm.getId() == null) {
@@ -72,8 +94,9 @@ public class FilmService {
         } else if (newFilm.getReleaseDate() != null && newFilm.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
             log.error(errorMessageOfReleaseDate);
             throw new ValidationException(errorMessageOfReleaseDate);
-        } else if (filmStorage.getFilm(newFilm.getId()) != null) {
-            Film oldFilm = filmStorage.getFilm(newFilm.getId());
+        }
+        Film oldFilm = filmStorage.getFilm(newFilm.getId());
+        if (oldFilm != null) {
             if (!newFilm.getName().equals(oldFilm.getName())) {
                 oldFilm.setName(newFilm.getName());
             }
@@ -113,31 +136,75 @@ public class FilmService {
         }
     }
 
-    public List<Film> getPopularFilms(Integer count) {
+    public List<Film> getPopularFilms(Integer count, Integer genreId, Integer mpaId, Integer year) {
         log.info("Начался вывод списка самых популярных фильмов по лайкам");
-        List<Film> films = filmStorage.getPopularFilms(count);
-        films.forEach(System.out::println);
-        return films;
+        checkPositiveFilter(genreId, "Id жанра");
+        checkPositiveFilter(mpaId, "Id MPA");
+        checkPositiveFilter(year, "Год выпуска");
+        return filmStorage.getPopularFilms(count, genreId, mpaId, year);
     }
 
-    public Set<Integer> addLikeToFilm(Integer filmId, Integer userId) {
-        log.info("Началось добавление лайка фильму c id = {} от пользователя с id = {}", filmId, userId);
-        if (filmStorage.getFilm(filmId) != null && userStorage.getUser(userId) != null) {
-            if (filmStorage.getUserLikesOnFilm(filmId).contains(userStorage.getUser(userId))) {
-                log.error("Пользователь с id = {} уже поставил лайк фильму с id = {}", userId, filmId);
-                throw new ThingIsAlreadyContain(String.format("Пользователь с id = %d уже поставил лайк фильму с id = %d", userId, filmId));
-            } else {
-                filmStorage.addLikeToFilm(filmId, userId);
-                log.info("Пользователь поставил с id = {} поставил лайк фильму с id = {}", userId, filmId);
-                return filmStorage.getUserLikesOnFilm(filmId).stream().map(User::getId).collect(Collectors.toSet());
+    private void checkPositiveFilter(Integer value, String name) {
+        if (value != null && value <= 0) {
+            log.error("{} должен быть положительным числом!", name);
+            throw new ValidationException(String.format("%s должен быть положительным числом!", name));
+        }
+    }
+
+    public List<Film> searchFilms(String query, String by, Integer count) {
+        log.info("Начался поиск фильмов по запросу \"{}\" в полях {}", query, by);
+        if (query == null || query.isBlank()) {
+            log.error("Поисковый запрос не может быть пустым!");
+            throw new ValidationException("Поисковый запрос не может быть пустым!");
+        }
+        if (count < 1) {
+            log.error("Количество фильмов должно быть положительным числом!");
+            throw new ValidationException("Количество фильмов должно быть положительным числом!");
+        }
+        boolean byName = false;
+        boolean byDescription = false;
+        for (String field : by.split(",")) {
+            switch (field.trim()) {
+                case "name" -> byName = true;
+                case "description" -> byDescription = true;
+                default -> {
+                    log.error("Неизвестное поле для поиска: {}", field);
+                    throw new ValidationException(String.format("Неизвестное поле для поиска: %s", field));
+                }
             }
-        } else if (filmStorage.getFilm(filmId) == null) {
+        }
+        return filmStorage.searchFilms(query, byName, byDescription, Math.min(count, Pagination.MAX_LIMIT));
+    }
+
+    public List<Film> getRecommendedFilms(Integer userId, Integer count) {
+        log.info("Началось получение рекомендуемых фильмов для пользователя с id = {}", userId);
+        if (userStorage.getUser(userId) == null) {
+            log.error(userService.getErrorMessageFindUserForLog(), userId);
+            throw new NotFoundException(String.format(userService.getErrorMessageFindUserForException(), userId));
+        }
+        if (count < 1) {
+            log.error("Количество рекомендаций должно быть положительным числом!");
+            throw new ValidationException("Количество рекомендаций должно быть положительным числом!");
+        }
+        return filmStorage.getRecommendedFilms(userId, Math.min(count, Pagination.MAX_LIMIT));
+    }
+
+    public Integer addLikeToFilm(Integer filmId, Integer userId) {
+        log.info("Началось добавление лайка фильму c id = {} от пользователя с id = {}", filmId, userId);
+        if (filmStorage.getFilm(filmId) == null) {
             log.error(errorMessageOfFindFilmForLog, filmId);
             throw new NotFoundException(String.format(errorMessageOfFindFilmForException, filmId));
-        } else {
+        }
+        if (userStorage.getUser(userId) == null) {
             log.error(userService.getErrorMessageFindUserForLog(), userId);
             throw new NotFoundException(String.format(userService.getErrorMessageFindUserForException(), userId));
         }
+        if (!filmStorage.addLikeToFilm(filmId, userId)) {
+            log.error("Пользователь с id = {} уже поставил лайк фильму с id = {}", userId, filmId);
+            throw new ThingIsAlreadyContain(String.format("Пользователь с id = %d уже поставил лайк фильму с id = %d", userId, filmId));
+        }
+        log.info("Пользователь поставил с id = {} поставил лайк фильму с id = {}", userId, filmId);
+        return filmStorage.getLikeCount(filmId);
     }
 
     public String deleteLikeFromFilm(Integer filmId, Integer userId) {
@@ -150,19 +217,12 @@ public class FilmService {
             log.error(userService.getErrorMessageFindUserForLog(), userId);
             throw new NotFoundException(String.format(userService.getErrorMessageFindUserForException(), userId));
         }
-        if (!filmStorage.getUserLikesOnFilm(filmId).stream().map(User::getId).toList().contains(userId)) {
+        if (!filmStorage.deleteLikeFromFilm(filmId, userId)) {
             log.error("Лайк пользователя c id = {} не найден", userId);
             throw new NotFoundException(String.format("Лайк пользователя c id = %d не найден", userId));
         }
-        filmStorage.deleteLikeFromFilm(filmId, userId);
         log.info("Пользователь с id = {} удалил лайк у фильма с id = {}", userId, filmId);
         return String.format("Пользователь с id = %d удалил лайк у фильма с id = %d", userId, filmId);
     }
 
-
-    public Integer getNewId() {
-        List<Film> films = filmStorage.getBaseOfFilms();
-        int returnId = films.stream().map(Film::getId).max(Integer::compareTo).orElse(0);
-        return ++returnId;
-    }
 }
@@ -0,0 +1,205 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.ImportChunkReport;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Массовая загрузка данных в формате NDJSON (один JSON-объект на строку).
+ * Строки читаются потоком и записываются пачками JDBC-запросов, каждая пачка - в своей транзакции,
+ * поэтому при ошибке в середине файла уже загруженные пачки сохраняются, а в ошибке указывается, сколько строк загружено.
+ */
+@Slf4j
+@Service
+public class ImportService {
+
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final FilmService filmService;
+    private final UserService userService;
+    private final ReferenceCatalog referenceCatalog;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @Autowired
+    public ImportService(FilmDbStorage filmStorage, UserDbStorage userStorage, FilmService filmService,
+                         UserService userService, ReferenceCatalog referenceCatalog, ObjectMapper objectMapper,
+                         Validator validator, PlatformTransactionManager transactionManager,
+                         @Value("${filmorate.import.chunk-size:1000}") int chunkSize) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.filmService = filmService;
+        this.userService = userService;
+        this.referenceCatalog = referenceCatalog;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public ImportReport importFilms(InputStream input) {
+        return importRows("films", input, Film.class, film -> {
+            filmService.checkReleaseDate(film.getReleaseDate());
+            if (referenceCatalog.getMpa(film.getMpa().getId()) == null) {
+                throw new ValidationException(String.format("MPA с id = %d не найден", film.getMpa().getId()));
+            }
+            if (film.getGenres() != null) {
+                for (Genre genre : film.getGenres()) {
+                    if (referenceCatalog.getGenre(genre.getId()) == null) {
+                        throw new ValidationException(String.format("Жанр с id = %d не найден", genre.getId()));
+                    }
+                }
+            }
+        }, chunk -> reserveExplicitIds(chunk, Film::getId, filmStorage::reserveIds), filmStorage::addFilms);
+    }
+
+    public ImportReport importUsers(InputStream input) {
+        return importRows("users", input, User.class, user -> {
+            userService.checkLogin(user.getLogin());
+            if (user.getName() == null) {
+                user.setName(user.getLogin());
+            }
+        }, chunk -> reserveExplicitIds(chunk, User::getId, userStorage::reserveIds), userStorage::addUsers);
+    }
+
+    public ImportReport importLikes(InputStream input) {
+        return importRows("likes", input, Like.class, like -> { }, chunk -> { }, filmStorage::addLikes);
+    }
+
+    public ImportReport importFriendships(InputStream input) {
+        return importRows("friends", input, Friendship.class, friendship -> {
+            if (friendship.getUserId().equals(friendship.getFriendId())) {
+                throw new ValidationException("Пользователь не может добавить в друзья самого себя");
+            }
+        }, chunk -> { }, userStorage::addFriendships);
+    }
+
+    /**
+     * Перед вставкой пачки генерация id сдвигается за наибольший явный id в ней, поэтому строки без id в этой
+     * и следующих пачках, а также параллельные запросы на добавление получают id, не совпадающие с загруженными.
+     */
+    private static <T> void reserveExplicitIds(List<T> chunk, Function<T, Integer> idGetter, IntConsumer reserver) {
+        chunk.stream()
+                .map(idGetter)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .max()
+                .ifPresent(reserver);
+    }
+
+    private <T> ImportReport importRows(String entity, InputStream input, Class<T> type, Consumer<T> rowCheck,
+                                        Consumer<List<T>> chunkPreparer, Consumer<List<T>> chunkWriter) {
+        log.info("Началась загрузка данных: {}, размер пачки = {}", entity, chunkSize);
+        ImportReport report = new ImportReport(entity);
+        long start = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            List<T> chunk = new ArrayList<>(chunkSize);
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                chunk.add(parseRow(line, lineNumber, type, rowCheck));
+                if (chunk.size() == chunkSize) {
+                    writeChunk(report, chunk, chunkPreparer, chunkWriter);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(report, chunk, chunkPreparer, chunkWriter);
+            }
+        } catch (IOException e) {
+            log.error("Не удалось прочитать данные для загрузки: {}", e.getMessage());
+            throw new InternalServerException("Не удалось прочитать данные для загрузки");
+        }
+        long durationNanos = System.nanoTime() - start;
+        report.setDurationMs(durationNanos / 1_000_000);
+        report.setRowsPerSecond(rowsPerSecond(report.getRows(), durationNanos));
+        log.info("Загрузка данных {} завершена: строк - {}, пачек - {}, время - {} мс, строк в секунду - {}",
+                entity, report.getRows(), report.getChunks().size(), report.getDurationMs(), report.getRowsPerSecond());
+        return report;
+    }
+
+    private <T> T parseRow(String line, int lineNumber, Class<T> type, Consumer<T> rowCheck) {
+        T row;
+        try {
+            row = objectMapper.readValue(line, type);
+        } catch (JsonProcessingException e) {
+            log.error("Строка {}: некорректный JSON", lineNumber);
+            throw new ValidationException(String.format("Строка %d: некорректный JSON", lineNumber));
+        }
+        Set<ConstraintViolation<T>> violations = validator.validate(row);
+        if (!violations.isEmpty()) {
+            String message = violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(" "));
+            log.error("Строка {}: {}", lineNumber, message);
+            throw new ValidationException(String.format("Строка %d: %s", lineNumber, message));
+        }
+        try {
+            rowCheck.accept(row);
+        } catch (ValidationException e) {
+            throw new ValidationException(String.format("Строка %d: %s", lineNumber, e.getMessage()));
+        }
+        return row;
+    }
+
+    private <T> void writeChunk(ImportReport report, List<T> chunk, Consumer<List<T>> chunkPreparer,
+                                Consumer<List<T>> chunkWriter) {
+        int chunkNumber = report.getChunks().size() + 1;
+        long start = System.nanoTime();
+        try {
+            chunkPreparer.accept(chunk);
+            transactionTemplate.executeWithoutResult(status -> chunkWriter.accept(chunk));
+        } catch (DataIntegrityViolationException e) {
+            log.error("Пачка {} не загружена: {}", chunkNumber, e.getMessage());
+            throw new ValidationException(String.format("Пачка %d не загружена из-за нарушения целостности данных "
+                    + "(дубликат или ссылка на несуществующую запись). Успешно загружено строк: %d", chunkNumber, report.getRows()));
+        }
+        long durationNanos = System.nanoTime() - start;
+        ImportChunkReport chunkReport = new ImportChunkReport(chunkNumber, chunk.size(), durationNanos / 1_000_000,
+                rowsPerSecond(chunk.size(), durationNanos));
+        report.addChunk(chunkReport);
+        log.debug("Загружена пачка {}: строк - {}, время - {} мс", chunkNumber, chunk.size(), chunkReport.getDurationMs());
+    }
+
+    private static double rowsPerSecond(long rows, long durationNanos) {
+        return durationNanos == 0 ? rows : rows * 1_000_000_000.0 / durationNanos;
+    }
+}
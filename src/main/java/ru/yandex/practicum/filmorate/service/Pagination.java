@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Параметры постраничной выдачи по ключу: страница начинается после записи с id = after
+ * и содержит не больше limit записей, поэтому любая страница выбирается по первичному ключу без OFFSET.
+ */
+final class Pagination {
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private Pagination() {
+    }
+
+    static int after(Integer after) {
+        return after == null ? 0 : after;
+    }
+
+    static int limit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ValidationException(String.format("Параметр limit должен быть от 1 до %d", MAX_LIMIT));
+        }
+        return limit;
+    }
+}
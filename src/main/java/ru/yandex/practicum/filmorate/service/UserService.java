@@ -12,6 +12,7 @@ import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -32,11 +33,22 @@ public class UserService {
         return userStorage.getBaseOfUsers();
     }
 
+    public List<User> getUsersPage(Integer after, Integer limit) {
+        log.info("Возвращена страница пользователей после пользователя с id = {}", after);
+        return userStorage.getUsersPage(Pagination.after(after), Pagination.limit(limit));
+    }
+
+    public void streamUsers(Consumer<User> consumer) {
+        log.info("Началась потоковая выгрузка всех пользователей");
+        userStorage.streamUsers(consumer);
+    }
+
     public User getUser(Integer userId) {
         log.info("Началось получение пользователя с id = {}", userId);
-        if (userStorage.getUser(userId) != null) {
+        User user = userStorage.getUser(userId);
+        if (user != null) {
             log.info("Пользователь с id = {} был найден и возвращен", userId);
-            return userStorage.getUser(userId);
+            return user;
         } else {
             log.error(errorMessageFindUserForLog, userId);
             throw new NotFoundException(String.format(errorMessageFindUserForException, userId));
@@ -48,8 +60,9 @@ public class UserService {
         if (newUser.getId() == null) {
             log.error("Получен пользователь с пустым id");
             throw new ValidationException("Id не должен быть пустым!");
-        } else if (userStorage.getBaseOfUsers().stream().map(User::getId).toList().contains(newUser.getId())) {
-            User oldUser = userStorage.getUser(newUser.getId());
+        }
+        User oldUser = userStorage.getUser(newUser.getId());
+        if (oldUser != null) {
             if (newUser.getName() != null && !newUser.getName().equals(oldUser.getName())) {
                 oldUser.setName(newUser.getName());
             }
@@ -89,66 +102,54 @@ public class UserService {
 
     public User create(User user) {
         log.info("Началось создание пользователя");
-        if (userStorage.getBaseOfUsers().stream().map(User::getEmail).anyMatch(email -> user.getEmail().equals(email))) {
+        if (userStorage.isEmailUsed(user.getEmail())) {
             log.error("Пользователь с электронной почтой: {} уже существует!", user.getEmail());
             throw new ValidationException(String.format("Пользователь с электронной почтой: %s уже существует!", user.getEmail()));
-        } else if (user.getLogin() == null || user.getLogin().contains(" ") || user.getLogin().isEmpty()) {
-            log.error("Логин не может быть быть пустым и содержать пробелы!");
-            throw new ValidationException("Логин не может быть быть пустым и содержать пробелы!");
-        } else if (userStorage.getBaseOfUsers().stream().map(User::getLogin).anyMatch(login -> user.getLogin().equals(login))) {
+        }
+        checkLogin(user.getLogin());
+        if (userStorage.isLoginUsed(user.getLogin())) {
             log.error("Пользователь с логином: {} уже существует!", user.getLogin());
             throw new ValidationException(String.format("Пользователь с логином: %s уже существует!", user.getLogin()));
         }
         if (user.getName() == null) {
             user.setName(user.getLogin());
         }
-        user.setId(getNextId());
         userStorage.addUser(user);
         log.info("Пользователь c id = {} создан и добавлен в базу", user.getId());
         return user;
     }
 
+    public void checkLogin(String login) {
+        if (login == null || login.contains(" ") || login.isEmpty()) {
+            log.error("Логин не может быть быть пустым и содержать пробелы!");
+            throw new ValidationException("Логин не может быть быть пустым и содержать пробелы!");
+        }
+    }
+
     public List<User> addFriendToUser(Integer userId, Integer friendId) {
         log.info("Началось добавление друга с id = {} к пользователю с id = {}", friendId, userId);
-        if (userStorage.getUser(userId) != null && userStorage.getUser(friendId) != null) {
-            if (!userStorage.getUserFriends(userId).contains(userStorage.getUser(friendId))) {
-                userStorage.addFriendToUser(userId, friendId);
-                log.info("Пользователь с id = {} добавил в друзья пользователя с id = {}", userId, friendId);
-                return userStorage.getUserFriends(userId);
-            } else {
-                System.out.println("Уже есть");
-                log.error("Пользователь с id = {} уже есть в списке друзей пользователя с id = {}", friendId, userId);
-                throw new ThingIsAlreadyContain(String.format("Пользователь с id = %d уже есть в списке друзей пользователя с id = %d", friendId, userId));
-            }
+        checkBothUsersExist(userId, friendId);
+        if (!userStorage.addFriendToUser(userId, friendId)) {
+            log.error("Пользователь с id = {} уже есть в списке друзей пользователя с id = {}", friendId, userId);
+            throw new ThingIsAlreadyContain(String.format("Пользователь с id = %d уже есть в списке друзей пользователя с id = %d", friendId, userId));
         }
-        if (userStorage.getUser(userId) == null) {
-            log.error(errorMessageFindUserForLog, userId);
-            throw new NotFoundException(String.format(errorMessageFindUserForException, userId));
-        }
-        log.error(errorMessageFindUserForLog, friendId);
-        throw new NotFoundException(String.format(errorMessageFindUserForException, friendId));
+        log.info("Пользователь с id = {} добавил в друзья пользователя с id = {}", userId, friendId);
+        return userStorage.getUserFriends(userId);
     }
 
     public String deleteFriendFromUserFriends(Integer userId, Integer friendId) {
         log.info("Началось удаление из друзей пользователя с id = {} пользователя с id = {}", userId, friendId);
-        if (userStorage.getUser(userId) != null && userStorage.getUser(friendId) != null) {
-            if (userStorage.getUserFriends(userId).isEmpty()) {
-                log.info("У пользователя c id = {} нет друзей", userId);
-                return String.format("У пользователя c id = %d нет друзей", userId);
-            } else if (userStorage.getUserFriends(userId).contains(userStorage.getUser(friendId))) {
-                userStorage.deleteFriendFromUser(userId, friendId);
-                log.info("Пользователь с id = {} удалил пользователя из друзей с id = {}", userId, friendId);
-                return String.format("Пользователь с id = %d удалил пользователя из друзей с id = %d", userId, friendId);
-            } else {
-                log.error("Пользователь с id = {} не имеет друга с id = {}", userId, friendId);
-                throw new NotFoundException(String.format("Пользователь с id = %d не имеет друга с id = %d", userId, friendId));
-            }
-        } else if (userStorage.getUser(userId) == null) {
-            log.error(errorMessageFindUserForLog, userId);
-            throw new NotFoundException(String.format(errorMessageFindUserForException, userId));
+        checkBothUsersExist(userId, friendId);
+        if (userStorage.getUserFriends(userId).isEmpty()) {
+            log.info("У пользователя c id = {} нет друзей", userId);
+            return String.format("У пользователя c id = %d нет друзей", userId);
+        } else if (userStorage.isFriend(userId, friendId)) {
+            userStorage.deleteFriendFromUser(userId, friendId);
+            log.info("Пользователь с id = {} удалил пользователя из друзей с id = {}", userId, friendId);
+            return String.format("Пользователь с id = %d удалил пользователя из друзей с id = %d", userId, friendId);
         } else {
-            log.error(errorMessageFindUserForLog, friendId);
-            throw new NotFoundException(String.format(errorMessageFindUserForException, friendId));
+            log.error("Пользователь с id = {} не имеет друга с id = {}", userId, friendId);
+            throw new NotFoundException(String.format("Пользователь с id = %d не имеет друга с id = %d", userId, friendId));
         }
     }
 
@@ -163,23 +164,43 @@ public class UserService {
         }
     }
 
+    public List<User> getUserFriendsPage(Integer userId, Integer after, Integer limit) {
+        log.info("Началось получение страницы друзей пользователя с id = {} после друга с id = {}", userId, after);
+        if (userStorage.getUser(userId) == null) {
+            log.error(errorMessageFindUserForLog, userId);
+            throw new NotFoundException(String.format(errorMessageFindUserForException, userId));
+        }
+        return userStorage.getUserFriendsPage(userId, Pagination.after(after), Pagination.limit(limit));
+    }
+
     public List<User> getCommonFriends(Integer userId, Integer otherUserId) {
         log.info("Началось получение общих друзей у пользователя с id = {} и пользователя с id = {}", userId, otherUserId);
-        if (userStorage.getUser(userId) != null && userStorage.getUser(otherUserId) != null) {
-            log.info("Получен и возвращен список всех общих друзей у пользователя с id = {} и пользователя с id = {}", userId, otherUserId);
-            return userStorage.getCommonFriends(userId, otherUserId);
-        } else if (userStorage.getUser(userId) == null) {
+        checkBothUsersExist(userId, otherUserId);
+        log.info("Получен и возвращен список всех общих друзей у пользователя с id = {} и пользователя с id = {}", userId, otherUserId);
+        return userStorage.getCommonFriends(userId, otherUserId);
+    }
+
+    public List<User> getRecommendedFriends(Integer userId, Integer count) {
+        log.info("Началось получение рекомендуемых друзей для пользователя с id = {}", userId);
+        if (userStorage.getUser(userId) == null) {
             log.error(errorMessageFindUserForLog, userId);
             throw new NotFoundException(String.format(errorMessageFindUserForException, userId));
-        } else {
-            log.error(errorMessageFindUserForLog, otherUserId);
-            throw new NotFoundException(String.format(errorMessageFindUserForException, otherUserId));
         }
+        if (count < 1) {
+            log.error("Количество рекомендаций должно быть положительным числом!");
+            throw new ValidationException("Количество рекомендаций должно быть положительным числом!");
+        }
+        return userStorage.getRecommendedFriends(userId, Math.min(count, Pagination.MAX_LIMIT));
     }
 
-    public Integer getNextId() {
-        int nextId = userStorage.getBaseOfUsers().stream().map(User::getId).max(Integer::compareTo).orElse(0);
-        return ++nextId;
+    private void checkBothUsersExist(Integer userId, Integer otherUserId) {
+        if (userStorage.getUser(userId) == null) {
+            log.error(errorMessageFindUserForLog, userId);
+            throw new NotFoundException(String.format(errorMessageFindUserForException, userId));
+        }
+        if (userStorage.getUser(otherUserId) == null) {
+            log.error(errorMessageFindUserForLog, otherUserId);
+            throw new NotFoundException(String.format(errorMessageFindUserForException, otherUserId));
+        }
     }
-
 }
@@ -1,42 +1,201 @@
 package ru.yandex.practicum.filmorate.storage;
 
-import lombok.RequiredArgsConstructor;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
-@RequiredArgsConstructor
+/**
+ * Базовые операции хранилищ поверх JdbcTemplate. Каждый запрос проходит через QueryMetrics,
+ * поэтому наследники выполняют SQL только через эти методы, а не через jdbcTemplate напрямую.
+ */
 public class BaseRepository<T> {
+    protected static final int STREAM_FETCH_SIZE = 500;
+    private static final String GET_IDENTITY_BASE = "SELECT IDENTITY_BASE FROM INFORMATION_SCHEMA.COLUMNS "
+            + "WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = ? AND COLUMN_NAME = 'ID'";
+    private static final String RESTART_IDENTITY = "ALTER TABLE %s ALTER COLUMN id RESTART WITH %d";
     protected final JdbcTemplate jdbcTemplate;
     protected final RowMapper<T> mapper;
+    protected final QueryMetrics metrics;
+    private final ReadWriteLock identityLock = new ReentrantReadWriteLock();
+
+    public BaseRepository(JdbcTemplate jdbcTemplate, RowMapper<T> mapper, QueryMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mapper = mapper;
+        this.metrics = metrics;
+        metrics.registerQueries(getClass());
+    }
 
     protected Optional<T> findOne(String query, Object... params) {
-        try {
-            T result = jdbcTemplate.queryForObject(query, mapper, params);
-            return Optional.ofNullable(result);
-        } catch (EmptyResultDataAccessException ignored) {
-            return Optional.empty();
-        }
+        return metrics.record(query, () -> {
+            try {
+                T result = jdbcTemplate.queryForObject(query, mapper, params);
+                return Optional.ofNullable(result);
+            } catch (EmptyResultDataAccessException ignored) {
+                return Optional.empty();
+            }
+        }, result -> result.isPresent() ? 1 : 0);
     }
 
     protected List<T> findMany(String query, Object... params) {
-        return jdbcTemplate.query(query, mapper, params);
+        return query(query, mapper, params);
+    }
+
+    protected <E> List<E> query(String query, RowMapper<E> rowMapper, Object... params) {
+        return metrics.record(query, () -> jdbcTemplate.query(query, rowMapper, params), List::size);
+    }
+
+    protected void query(String query, RowCallbackHandler handler, Object... params) {
+        int[] rows = new int[1];
+        metrics.record(query, () -> {
+            jdbcTemplate.query(query, (RowCallbackHandler) rs -> {
+                rows[0]++;
+                handler.processRow(rs);
+            }, params);
+            return rows[0];
+        }, Integer::intValue);
+    }
+
+    protected <E> List<E> queryForList(String query, Class<E> type, Object... params) {
+        return metrics.record(query, () -> jdbcTemplate.queryForList(query, type, params), List::size);
+    }
+
+    protected <E> E queryForObject(String query, Class<E> type, Object... params) {
+        return metrics.record(query, () -> jdbcTemplate.queryForObject(query, type, params), result -> 1);
+    }
+
+    /**
+     * Построчное чтение результата запроса без загрузки всей выборки в память:
+     * драйвер получает строки порциями по fetchSize, каждая строка сразу передается в handler.
+     */
+    protected void stream(String query, int fetchSize, RowCallbackHandler handler, Object... params) {
+        int[] rows = new int[1];
+        metrics.record(query, () -> {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                for (int i = 0; i < params.length; i++) {
+                    ps.setObject(i + 1, params[i]);
+                }
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                rows[0]++;
+                handler.processRow(rs);
+            });
+            return rows[0];
+        }, Integer::intValue);
     }
 
     protected boolean delete(String query, Object... params) {
-        int rowsDeleted = jdbcTemplate.update(query, params);
+        int rowsDeleted = update(query, params);
         return rowsDeleted > 0;
     }
 
-    protected void update(String query, Object... params) {
-        int rowsUpdated = jdbcTemplate.update(query, params);
+    protected int update(String query, Object... params) {
+        return metrics.record(query, () -> jdbcTemplate.update(query, params), Integer::intValue);
     }
 
 
     protected void insert(String query, Object... params) {
-        jdbcTemplate.update(query, params);
+        update(query, params);
+    }
+
+    protected void batchUpdate(String query, List<Object[]> batchParams) {
+        if (!batchParams.isEmpty()) {
+            metrics.record(query, () -> jdbcTemplate.batchUpdate(query, batchParams), QueryMetrics::affectedRows);
+        }
+    }
+
+    protected List<Integer> batchInsertAndReturnIds(String query, List<Object[]> batchParams) {
+        if (batchParams.isEmpty()) {
+            return List.of();
+        }
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        withIdentityLock(() -> metrics.record(query, () -> jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Object[] params = batchParams.get(i);
+                        for (int j = 0; j < params.length; j++) {
+                            ps.setObject(j + 1, params[j]);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batchParams.size();
+                    }
+                }, keyHolder), QueryMetrics::affectedRows));
+        List<Integer> ids = keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.values().iterator().next()).intValue())
+                .toList();
+        if (ids.size() != batchParams.size()) {
+            throw new InternalServerException("Не удалось сохранить данные");
+        }
+        return ids;
+    }
+
+    /**
+     * Сдвигает генерацию id таблицы за explicitMaxId до вставки строк с явными id, чтобы id, выданные после этого
+     * (в том числе параллельным запросам), не совпали с ними. Счетчик identity в H2 не зависит от MAX(id)
+     * (после удалений или прошлых сдвигов он может быть больше), поэтому читается его текущее значение
+     * и счетчик только увеличивается. Вставки с генерацией id в этом хранилище ждут на той же блокировке,
+     * чтобы между чтением счетчика и ALTER TABLE никто не получил id. ALTER TABLE в H2 завершает текущую
+     * транзакцию, поэтому метод вызывается вне транзакции вставки.
+     */
+    protected void reserveIdentity(String table, int explicitMaxId) {
+        identityLock.writeLock().lock();
+        try {
+            Long nextId = queryForObject(GET_IDENTITY_BASE, Long.class, table.toUpperCase(Locale.ROOT));
+            if (nextId == null || nextId > explicitMaxId) {
+                return;
+            }
+            String restartIdentity = String.format(RESTART_IDENTITY, table, explicitMaxId + 1);
+            metrics.record(restartIdentity, () -> {
+                jdbcTemplate.execute(restartIdentity);
+                return 0;
+            }, rows -> rows);
+        } finally {
+            identityLock.writeLock().unlock();
+        }
+    }
+
+    protected Integer insertAndReturnId(String query, Object... params) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        withIdentityLock(() -> metrics.record(query, () -> jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            return ps;
+        }, keyHolder), Integer::intValue));
+        Integer id = keyHolder.getKeyAs(Integer.class);
+        if (id == null) {
+            throw new InternalServerException("Не удалось сохранить данные");
+        }
+        return id;
+    }
+
+    private <R> R withIdentityLock(Supplier<R> insert) {
+        identityLock.readLock().lock();
+        try {
+            return insert.get();
+        } finally {
+            identityLock.readLock().unlock();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Метрики запросов к базе данных: время выполнения (с гистограммой для перцентилей), число строк и число ошибок.
+ * Запрос определяется по тексту SQL и помечается логическим именем - именем константы в классе хранилища
+ * (тег query) и именем этого класса (тег repository). Запросы, собранные через String.format из шаблона
+ * (например, WHERE id IN (%s)), сопоставляются с шаблоном по неизменяемым началу и концу текста.
+ */
+@Slf4j
+@Component
+public class QueryMetrics {
+    public static final String QUERY_TIMER = "filmorate.storage.query";
+    public static final String QUERY_ROWS = "filmorate.storage.query.rows";
+    public static final String QUERY_ERRORS = "filmorate.storage.query.errors";
+    private static final Set<String> STATEMENTS = Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "MERGE", "ALTER");
+    private static final String UNKNOWN = "unknown";
+    private final MeterRegistry registry;
+    private final Map<String, QueryMeters> metersByQuery = new ConcurrentHashMap<>();
+    private final List<QueryTemplate> templates = new CopyOnWriteArrayList<>();
+    private final QueryMeters unknownQuery;
+
+    @Autowired
+    public QueryMetrics(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry.getIfAvailable(SimpleMeterRegistry::new);
+        this.unknownQuery = new QueryMeters(UNKNOWN, UNKNOWN);
+    }
+
+    /**
+     * Регистрирует SQL-константы класса хранилища и его родителей. Одинаковый текст у нескольких констант
+     * получает имя первой из них по алфавиту.
+     */
+    public void registerQueries(Class<?> repository) {
+        for (Class<?> type = repository; type != null && type != Object.class; type = type.getSuperclass()) {
+            Field[] fields = type.getDeclaredFields();
+            Arrays.sort(fields, Comparator.comparing(Field::getName));
+            for (Field field : fields) {
+                String query = queryConstant(field);
+                if (query == null) {
+                    continue;
+                }
+                String[] parts = query.split("%[sd]", -1);
+                if (parts.length == 1) {
+                    String repositoryName = type.getSimpleName();
+                    metersByQuery.computeIfAbsent(query, sql -> new QueryMeters(repositoryName, field.getName()));
+                } else if (templates.stream().noneMatch(template -> template.query().equals(query))) {
+                    templates.add(new QueryTemplate(query, parts[0], parts[parts.length - 1],
+                            new QueryMeters(type.getSimpleName(), field.getName())));
+                }
+            }
+        }
+    }
+
+    public <R> R record(String query, Supplier<R> call, ToIntFunction<R> rowCount) {
+        QueryMeters meters = metersOf(query);
+        long start = System.nanoTime();
+        R result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            meters.failed(System.nanoTime() - start, e);
+            throw e;
+        }
+        meters.succeeded(System.nanoTime() - start, rowCount.applyAsInt(result));
+        return result;
+    }
+
+    /**
+     * Чтение всех строк запроса обработчиком - для компонентов, которые при старте загружают таблицы в память
+     * и не наследуют BaseRepository. Запрос должен быть зарегистрирован через registerQueries.
+     */
+    public int query(JdbcTemplate jdbcTemplate, String query, RowCallbackHandler handler) {
+        return record(query, () -> {
+            int[] rows = {0};
+            jdbcTemplate.query(query, (RowCallbackHandler) rs -> {
+                handler.processRow(rs);
+                rows[0]++;
+            });
+            return rows[0];
+        }, Integer::intValue);
+    }
+
+    public static int affectedRows(int[] counts) {
+        int rows = 0;
+        for (int count : counts) {
+            rows += Math.max(count, 0);
+        }
+        return rows;
+    }
+
+    private QueryMeters metersOf(String query) {
+        QueryMeters meters = metersByQuery.get(query);
+        if (meters != null) {
+            return meters;
+        }
+        for (QueryTemplate template : templates) {
+            if (query.startsWith(template.prefix()) && query.endsWith(template.suffix())) {
+                return template.meters();
+            }
+        }
+        log.debug("Запрос не зарегистрирован и учитывается как {}: {}", UNKNOWN, query);
+        return unknownQuery;
+    }
+
+    private static String queryConstant(Field field) {
+        int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers) || field.getType() != String.class) {
+            return null;
+        }
+        try {
+            field.setAccessible(true);
+            String value = (String) field.get(null);
+            String statement = value.trim().split("\\s+")[0].toUpperCase(Locale.ROOT);
+            return STATEMENTS.contains(statement) ? value : null;
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private record QueryTemplate(String query, String prefix, String suffix, QueryMeters meters) {
+    }
+
+    private final class QueryMeters {
+        private final String repository;
+        private final String query;
+        private final Timer succeeded;
+        private final Timer failed;
+        private final DistributionSummary rows;
+
+        QueryMeters(String repository, String query) {
+            this.repository = repository;
+            this.query = query;
+            this.succeeded = timer("success");
+            this.failed = timer("error");
+            this.rows = DistributionSummary.builder(QUERY_ROWS)
+                    .description("Число строк, прочитанных или измененных запросом")
+                    .baseUnit("rows")
+                    .tags("repository", repository, "query", query)
+                    .register(registry);
+        }
+
+        void succeeded(long nanos, int rowCount) {
+            succeeded.record(nanos, TimeUnit.NANOSECONDS);
+            rows.record(rowCount);
+        }
+
+        void failed(long nanos, RuntimeException e) {
+            failed.record(nanos, TimeUnit.NANOSECONDS);
+            registry.counter(QUERY_ERRORS, "repository", repository, "query", query, "exception", e.getClass().getSimpleName())
+                    .increment();
+        }
+
+        private Timer timer(String outcome) {
+            return Timer.builder(QUERY_TIMER)
+                    .description("Время выполнения запроса к базе данных")
+                    .tags("repository", repository, "query", query, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Справочники жанров и рейтингов MPA, которые один раз загружаются из базы данных при старте приложения.
+ * Значения хранятся в массивах, где индекс совпадает с id, поэтому поиск по id выполняется за O(1).
+ */
+@Slf4j
+@Component
+public class ReferenceCatalog {
+    private final List<Genre> genres;
+    private final List<Mpa> mpaList;
+    private final Genre[] genresById;
+    private final Mpa[] mpaById;
+
+    @Autowired
+    public ReferenceCatalog(GenreDbStorage genreDbStorage, MpaDbStorage mpaDbStorage) {
+        this.genres = genreDbStorage.getAll().stream().sorted(Comparator.comparingInt(Genre::getId)).toList();
+        this.mpaList = mpaDbStorage.getAll().stream().sorted(Comparator.comparingInt(Mpa::getId)).toList();
+        this.genresById = toArray(genres, Genre::getId, new Genre[maxId(genres, Genre::getId) + 1]);
+        this.mpaById = toArray(mpaList, Mpa::getId, new Mpa[maxId(mpaList, Mpa::getId) + 1]);
+        log.info("Загружены справочники: жанров - {}, рейтингов MPA - {}", genres.size(), mpaList.size());
+    }
+
+    public List<Genre> getGenres() {
+        return genres;
+    }
+
+    public List<Mpa> getMpaList() {
+        return mpaList;
+    }
+
+    public Genre getGenre(Integer genreId) {
+        if (genreId == null || genreId < 0 || genreId >= genresById.length) {
+            return null;
+        }
+        return genresById[genreId];
+    }
+
+    public Mpa getMpa(Integer mpaId) {
+        if (mpaId == null || mpaId < 0 || mpaId >= mpaById.length) {
+            return null;
+        }
+        return mpaById[mpaId];
+    }
+
+    private static <T> int maxId(List<T> values, Function<T, Integer> idGetter) {
+        return values.stream().map(idGetter).max(Integer::compareTo).orElse(0);
+    }
+
+    private static <T> T[] toArray(List<T> values, Function<T, Integer> idGetter, T[] result) {
+        for (T value : values) {
+            result[idGetter.apply(value)] = value;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Карта уже загруженных сущностей в рамках одного HTTP-запроса.
+ * Каждая сущность загружается из базы данных не более одного раза за запрос,
+ * вне HTTP-запроса (например, в тестах) загрузка выполняется напрямую.
+ */
+public class RequestIdentityMap<T> {
+    private final String attributeName;
+
+    public RequestIdentityMap(String attributeName) {
+        this.attributeName = RequestIdentityMap.class.getName() + "." + attributeName;
+    }
+
+    public T get(Integer id, Function<Integer, T> loader) {
+        Map<Integer, T> entities = getRequestEntities();
+        if (entities == null) {
+            return loader.apply(id);
+        }
+        T entity = entities.get(id);
+        if (entity == null) {
+            entity = loader.apply(id);
+            if (entity != null) {
+                entities.put(id, entity);
+            }
+        }
+        return entity;
+    }
+
+    public void put(Integer id, T entity) {
+        Map<Integer, T> entities = getRequestEntities();
+        if (entities != null) {
+            entities.put(id, entity);
+        }
+    }
+
+    public void evict(Integer id) {
+        Map<Integer, T> entities = getRequestEntities();
+        if (entities != null) {
+            entities.remove(id);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Integer, T> getRequestEntities() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Map<Integer, T> entities = (Map<Integer, T>) attributes.getAttribute(attributeName, RequestAttributes.SCOPE_REQUEST);
+        if (entities == null) {
+            entities = new HashMap<>();
+            attributes.setAttribute(attributeName, entities, RequestAttributes.SCOPE_REQUEST);
+        }
+        return entities;
+    }
+}
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import lombok.Value;
+
+@Value
+public class CacheStats {
+    long hits;
+    long misses;
+    long evictions;
+    int size;
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import ru.yandex.practicum.filmorate.storage.TransactionCompensation;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Ограниченный по размеру кэш сущностей по id с вытеснением давно не использованных записей (LRU).
+ * Наружу всегда отдаются копии, чтобы изменения объекта в сервисе не попадали в кэш до записи в базу данных.
+ * Загрузка из базы идет без блокировки, поэтому для id, которые сейчас загружаются, хранится номер поколения:
+ * evict() увеличивает его, и если он изменился за время загрузки, прочитанная (возможно, устаревшая) строка
+ * не кладется в кэш.
+ */
+public class EntityCache<T> {
+    private final boolean enabled;
+    private final UnaryOperator<T> copier;
+    private final Map<Integer, T> entries;
+    private final Map<Integer, PendingLoad> pendingLoads = new HashMap<>();
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public EntityCache(boolean enabled, int maxSize, UnaryOperator<T> copier) {
+        this.enabled = enabled && maxSize > 0;
+        this.copier = copier;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) {
+                if (size() > maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public T get(Integer id, Function<Integer, T> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        PendingLoad load;
+        long generation;
+        synchronized (this) {
+            T cached = entries.get(id);
+            if (cached != null) {
+                hits++;
+                return copier.apply(cached);
+            }
+            misses++;
+            load = pendingLoads.computeIfAbsent(id, key -> new PendingLoad());
+            load.loaders++;
+            generation = load.generation;
+        }
+        T loaded = null;
+        boolean stored = false;
+        try {
+            loaded = loader.apply(id);
+        } finally {
+            synchronized (this) {
+                if (loaded != null && load.generation == generation) {
+                    entries.put(id, copier.apply(loaded));
+                    stored = true;
+                }
+                if (--load.loaders == 0) {
+                    pendingLoads.remove(id);
+                }
+            }
+        }
+        if (stored) {
+            TransactionCompensation.onRollback(() -> remove(id));
+        }
+        return loaded;
+    }
+
+    public void evict(Integer id) {
+        if (!enabled) {
+            return;
+        }
+        remove(id);
+        TransactionCompensation.afterCompletion(() -> remove(id));
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions, entries.size());
+    }
+
+    private synchronized void remove(Integer id) {
+        entries.remove(id);
+        PendingLoad load = pendingLoads.get(id);
+        if (load != null) {
+            load.generation++;
+        }
+    }
+
+    private static final class PendingLoad {
+        private int loaders;
+        private long generation;
+    }
+}
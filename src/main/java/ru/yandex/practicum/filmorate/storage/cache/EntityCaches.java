@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.LinkedHashSet;
+
+/**
+ * Кэши пользователей и фильмов для UserDbStorage и FilmDbStorage.
+ * Включаются свойством filmorate.cache.enabled, размер задается свойством filmorate.cache.max-size.
+ * Попадания, промахи, вытеснения и размер каждого кэша публикуются в MeterRegistry с тегами cache и enabled,
+ * чтобы их можно было сопоставить с метриками запросов QueryMetrics при включенном и выключенном кэше.
+ */
+@Slf4j
+@Getter
+@Component
+public class EntityCaches {
+    public static final String CACHE_GETS = "filmorate.cache.gets";
+    public static final String CACHE_EVICTIONS = "filmorate.cache.evictions";
+    public static final String CACHE_SIZE = "filmorate.cache.size";
+    private final EntityCache<User> users;
+    private final EntityCache<Film> films;
+
+    public EntityCaches(@Value("${filmorate.cache.enabled:false}") boolean enabled,
+                        @Value("${filmorate.cache.max-size:10000}") int maxSize,
+                        ObjectProvider<MeterRegistry> registry) {
+        this.users = new EntityCache<>(enabled, maxSize, EntityCaches::copyUser);
+        this.films = new EntityCache<>(enabled, maxSize, EntityCaches::copyFilm);
+        registry.ifAvailable(meterRegistry -> {
+            bindMeters(meterRegistry, "users", enabled, users);
+            bindMeters(meterRegistry, "films", enabled, films);
+        });
+        log.info("Кэш пользователей и фильмов {}, максимальный размер = {}", enabled ? "включен" : "выключен", maxSize);
+    }
+
+    private static void bindMeters(MeterRegistry registry, String name, boolean enabled, EntityCache<?> cache) {
+        String enabledTag = String.valueOf(enabled);
+        FunctionCounter.builder(CACHE_GETS, cache, c -> c.getStats().getHits())
+                .description("Чтения из кэша, нашедшие сущность")
+                .tags("cache", name, "enabled", enabledTag, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder(CACHE_GETS, cache, c -> c.getStats().getMisses())
+                .description("Чтения из кэша, ушедшие в базу данных")
+                .tags("cache", name, "enabled", enabledTag, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder(CACHE_EVICTIONS, cache, c -> c.getStats().getEvictions())
+                .description("Записи, вытесненные из кэша по размеру")
+                .tags("cache", name, "enabled", enabledTag)
+                .register(registry);
+        Gauge.builder(CACHE_SIZE, cache, c -> c.getStats().getSize())
+                .description("Число записей в кэше")
+                .tags("cache", name, "enabled", enabledTag)
+                .register(registry);
+    }
+
+    private static User copyUser(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setLogin(user.getLogin());
+        copy.setName(user.getName());
+        copy.setEmail(user.getEmail());
+        copy.setBirthday(user.getBirthday());
+        return copy;
+    }
+
+    private static Film copyFilm(Film film) {
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+        copy.setGenres(new LinkedHashSet<>(film.getGenres()));
+        if (film.getMpa() != null) {
+            Mpa mpa = film.getMpa();
+            copy.setMpa(new Mpa(mpa.getId(), mpa.getName(), mpa.getDescription()));
+        }
+        return copy;
+    }
+}
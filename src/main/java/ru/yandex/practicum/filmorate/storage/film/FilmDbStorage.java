@@ -3,149 +3,404 @@ package ru.yandex.practicum.filmorate.storage.film;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
-import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
-import ru.yandex.practicum.filmorate.mappers.MpaRowMapper;
 import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.BaseRepository;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.RequestIdentityMap;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCache;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCaches;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 @Slf4j
 @Qualifier
 @Repository
 public class FilmDbStorage extends BaseRepository<Film> implements FilmStorage {
-    private static final String ADD_FILM = "MERGE INTO films(id, name, description, releaseDate, duration, MPA_id)  KEY(id)" + "VALUES (?, ?,?,?,?,?)";
+    private static final String ADD_FILM = "INSERT INTO films(name, description, releaseDate, duration, MPA_id) " + "VALUES (?,?,?,?,?)";
+    private static final String ADD_FILM_WITH_ID = "INSERT INTO films(id, name, description, releaseDate, duration, MPA_id) " + "VALUES (?,?,?,?,?,?)";
     private static final String ADD_FILM_GENRES = "MERGE INTO films_genres(film_id, genre_id) KEY(film_id, genre_id) VALUES (?,?)";
-    private static final String GET_FILM_BY_ID = "SELECT * FROM films WHERE id = ?";
-    private static final String GET_FILM_MPA = "SELECT * FROM MPA WHERE id in (SELECT MPA_id FROM films WHERE id = ?)";
-    private static final String GET_FILM_GENRES = "SELECT * FROM genres WHERE id IN (SELECT genre_id FROM films_genres WHERE film_id = ?)";
-    private static final String GET_ALL_FILMS = "SELECT * FROM films";
+    private static final String SELECT_FILMS_WITH_MPA = "SELECT f.*, m.name AS mpa_name, m.description AS mpa_description " + "FROM films f LEFT JOIN MPA m ON m.id = f.MPA_id";
+    private static final String GET_FILM_BY_ID = SELECT_FILMS_WITH_MPA + " WHERE f.id = ?";
+    private static final String GET_ALL_FILMS = SELECT_FILMS_WITH_MPA;
+    private static final String STREAM_FILMS_WITH_GENRES = "SELECT f.*, m.name AS mpa_name, m.description AS mpa_description, fg.genre_id "
+            + "FROM films f LEFT JOIN MPA m ON m.id = f.MPA_id LEFT JOIN films_genres fg ON fg.film_id = f.id ORDER BY f.id, fg.genre_id";
+    private static final String GET_FILMS_PAGE = SELECT_FILMS_WITH_MPA + " WHERE f.id > ? ORDER BY f.id LIMIT ?";
+    private static final String GET_GENRES_OF_FILMS_PAGE = "SELECT film_id, genre_id FROM films_genres WHERE film_id > ? AND film_id <= ? ORDER BY film_id, genre_id";
+    private static final String GET_GENRES_OF_FILMS = "SELECT film_id, genre_id FROM films_genres WHERE film_id IN (%s) ORDER BY film_id, genre_id";
+    private static final String GET_GENRES_OF_ALL_FILMS = "SELECT film_id, genre_id FROM films_genres ORDER BY film_id, genre_id";
     private static final String UPDATE_FILM = "UPDATE films SET name = ?, description = ?, releaseDate = ?, duration = ?, MPA_id = ? WHERE id = ?";
     private static final String DELETE_FILM = "DELETE FROM films WHERE id = ?";
     private static final String DELETE_FILM_GENRES = "DELETE FROM films_genres WHERE film_id = ?";
-    private static final String ADD_LIKE_TO_FILM = "MERGE INTO likes(film_id, user_id) KEY (film_id, user_id)" + "VALUES (?, ?)";
-    private static final String GET_POPULAR_FILMS = "SELECT * FROM FILMS WHERE id IN " + "(SELECT film_id FROM likes GROUP BY film_id ORDER BY COUNT(*) DESC) LIMIT ?";
+    private static final String DELETE_FILM_GENRE = "DELETE FROM films_genres WHERE film_id = ? AND genre_id = ?";
+    private static final String GET_FILM_GENRE_IDS = "SELECT genre_id FROM films_genres WHERE film_id = ?";
+    private static final String ADD_LIKE_TO_FILM = "INSERT INTO likes(film_id, user_id) VALUES (?, ?)";
+    private static final String GET_FILMS_BY_IDS = SELECT_FILMS_WITH_MPA + " WHERE f.id IN (%s)";
     private static final String DELETE_LIKE_FROM_FILM = "DELETE FROM likes WHERE film_id = ? AND user_id = ? ";
-    private static final String GET_USERS_THAT_LIKED_FILM = "SELECT * FROM users WHERE id IN(SELECT user_id FROM LIKES WHERE film_id = ?)";
+    private static final String CHANGE_LIKE_COUNT = "UPDATE films SET like_count = like_count + ? WHERE id = ?";
+    private static final String GET_LIKE_COUNT = "SELECT like_count FROM films WHERE id = ?";
+    private static final String GET_WRONG_LIKE_COUNTS = "SELECT f.id, f.like_count, (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id) AS actual "
+            + "FROM films f WHERE f.like_count <> (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id)";
+    private static final String REPAIR_LIKE_COUNT = "UPDATE films SET like_count = ? WHERE id = ? AND like_count = ?";
+    private static final String GET_USERS_THAT_LIKED_FILM = "SELECT u.* FROM likes l JOIN users u ON u.id = l.user_id WHERE l.film_id = ?";
+    private static final String GET_USERS_THAT_LIKED_FILM_PAGE = "SELECT u.* FROM likes l JOIN users u ON u.id = l.user_id "
+            + "WHERE l.film_id = ? AND l.user_id > ? ORDER BY l.user_id LIMIT ?";
     private static final String DELETE_LIKES_WHEN_DELETE_FILM = "DELETE FROM likes WHERE film_id = ?";
-    private static final MpaRowMapper mpaMapper = new MpaRowMapper();
-    private static final GenreRowMapper genreMapper = new GenreRowMapper();
     private static final UserRowMapper userMapper = new UserRowMapper();
-    private final List<Genre> genres = jdbcTemplate.query("SELECT * FROM genres", genreMapper);
-    private final List<Mpa> mpaList = jdbcTemplate.query("SELECT * FROM MPA", mpaMapper);
+    private final RequestIdentityMap<Film> identityMap = new RequestIdentityMap<>("films");
+    private final FilmPopularityIndex popularityIndex;
+    private final EntityCache<Film> cache;
+    private final ReferenceCatalog referenceCatalog;
+    private final LikesMatrix likesMatrix;
+    private final FilmSearchIndex searchIndex;
+    private final TransactionTemplate transactionTemplate;
 
 
     @Autowired
-    public FilmDbStorage(JdbcTemplate jdbcTemplate, RowMapper<Film> mapper) {
-        super(jdbcTemplate, mapper);
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, RowMapper<Film> mapper, FilmPopularityIndex popularityIndex, EntityCaches caches,
+                         ReferenceCatalog referenceCatalog, LikesMatrix likesMatrix, FilmSearchIndex searchIndex,
+                         PlatformTransactionManager transactionManager, QueryMetrics metrics) {
+        super(jdbcTemplate, mapper, metrics);
+        this.popularityIndex = popularityIndex;
+        this.cache = caches.getFilms();
+        this.referenceCatalog = referenceCatalog;
+        this.likesMatrix = likesMatrix;
+        this.searchIndex = searchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
     public void addFilm(Film film) {
-        log.info("Получен запрос в базу данных на добавление фильма с id = {} ", film.getId());
-        if (film.getMpa() != null && mpaList.stream().map(Mpa::getId).noneMatch(integer -> integer == film.getMpa().getId())) {
-            log.error("MPA с id = {} не найден", film.getMpa().getId());
-            throw new NotFoundException(String.format("MPA с id = %d не найден", film.getMpa().getId()));
+        log.debug("Получен запрос в базу данных на добавление фильма с названием {}", film.getName());
+        resolveMpaAndGenres(film);
+        transactionTemplate.executeWithoutResult(status -> {
+            film.setId(insertAndReturnId(ADD_FILM, film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), film.getMpa().getId()));
+            batchUpdate(ADD_FILM_GENRES, toGenreParams(film.getId(), film.getGenres().stream().map(Genre::getId).toList()));
+            popularityIndex.putFilm(film);
+            searchIndex.putFilm(film);
+        });
+        if (log.isDebugEnabled()) {
+            log.debug("В базу данных был добавлен фильм с id = {} и жанры в количестве {}", film.getId(), film.getGenres().size());
         }
-        insert(ADD_FILM, film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), film.getMpa().getId());
-        log.info("В базу данных был добавлен фильм с id = {}", film.getId());
-        for (Genre genre : film.getGenres()) {
-            if (genres.stream().map(Genre::getId).anyMatch(integer -> integer == genre.getId())) {
-                log.info("К фильму с id = {} был добавлен жанр с id = {}", film.getId(), genre.getId());
-                insert(ADD_FILM_GENRES, film.getId(), genre.getId());
-            } else {
-                log.error("Жанр с id = {} не найден", genre.getId());
-                throw new NotFoundException(String.format("Жанр с id = %d не найден", genre.getId()));
-            }
+    }
+
+    @Override
+    public void addFilms(List<Film> films) {
+        log.debug("Получен запрос в базу данных на добавление {} фильмов", films.size());
+        films.forEach(this::resolveMpaAndGenres);
+        List<Film> filmsWithId = films.stream().filter(film -> film.getId() != null).toList();
+        List<Film> filmsWithoutId = films.stream().filter(film -> film.getId() == null).toList();
+        batchUpdate(ADD_FILM_WITH_ID, filmsWithId.stream()
+                .map(film -> new Object[]{film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), film.getMpa().getId()})
+                .toList());
+        List<Integer> ids = batchInsertAndReturnIds(ADD_FILM, filmsWithoutId.stream()
+                .map(film -> new Object[]{film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(), film.getMpa().getId()})
+                .toList());
+        for (int i = 0; i < ids.size(); i++) {
+            filmsWithoutId.get(i).setId(ids.get(i));
         }
+        batchUpdate(ADD_FILM_GENRES, films.stream()
+                .flatMap(film -> film.getGenres().stream().map(genre -> new Object[]{film.getId(), genre.getId()}))
+                .toList());
+        films.forEach(popularityIndex::putFilm);
+        films.forEach(searchIndex::putFilm);
+        log.debug("В базу данных было добавлено {} фильмов", films.size());
     }
 
     @Override
-    public Film getFilm(Integer filmId) {
-        log.info("Получен запрос в базу данных о получении фильма с id = {}", filmId);
-        try {
-            Optional<Film> film = findOne(GET_FILM_BY_ID, filmId);
-            Optional<Mpa> mpa = Optional.ofNullable(jdbcTemplate.queryForObject(GET_FILM_MPA, mpaMapper, filmId));
-            List<Genre> genres = jdbcTemplate.query(GET_FILM_GENRES, genreMapper, filmId);
-            if (film.isPresent()) {
-                Film resultFilm = film.get();
-                if (mpa.isPresent()) {
-                    resultFilm.setMpa(mpa.get());
+    public void reserveIds(int maxId) {
+        log.debug("Получен запрос в базу данных на сдвиг генерации id фильмов за id = {}", maxId);
+        reserveIdentity("films", maxId);
+    }
+
+    @Override
+    public List<Film> getFilmsPage(Integer afterId, int limit) {
+        log.debug("Получен запрос в базу данных на получение {} фильмов после фильма с id = {}", limit, afterId);
+        List<Film> films = findMany(GET_FILMS_PAGE, afterId, limit);
+        if (!films.isEmpty()) {
+            loadGenres(films, GET_GENRES_OF_FILMS_PAGE, afterId, films.get(films.size() - 1).getId());
+        }
+        return films;
+    }
+
+    @Override
+    public void streamFilms(Consumer<Film> consumer) {
+        log.debug("Получен запрос в базу данных на потоковую выгрузку всех фильмов");
+        Film[] current = new Film[1];
+        stream(STREAM_FILMS_WITH_GENRES, STREAM_FETCH_SIZE, rs -> {
+            int filmId = rs.getInt("id");
+            if (current[0] == null || current[0].getId() != filmId) {
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
                 }
-                if (!genres.isEmpty()) resultFilm.setGenres(new HashSet<>(genres));
-                log.info("Фильм с id = {} был найден в базе данных", filmId);
-                return resultFilm;
-            } else {
-                log.error("Фильм с id = {} не был найден в базе данны", filmId);
-                return null;
+                current[0] = mapper.mapRow(rs, rs.getRow());
             }
-        } catch (EmptyResultDataAccessException ignored) {
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                current[0].addGenre(referenceCatalog.getGenre(genreId));
+            }
+        });
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
+
+    @Override
+    public Film getFilm(Integer filmId) {
+        return identityMap.get(filmId, id -> cache.get(id, this::loadFilm));
+    }
+
+    private Film loadFilm(Integer filmId) {
+        log.debug("Получен запрос в базу данных о получении фильма с id = {}", filmId);
+        Optional<Film> film = findOne(GET_FILM_BY_ID, filmId);
+        if (film.isPresent()) {
+            Film resultFilm = film.get();
+            loadGenres(List.of(resultFilm), String.format(GET_GENRES_OF_FILMS, "?"), filmId);
+            log.debug("Фильм с id = {} был найден в базе данных", filmId);
+            return resultFilm;
+        } else {
+            log.error("Фильм с id = {} не был найден в базе данны", filmId);
             return null;
         }
     }
 
     @Override
     public void updateFilm(Film newFilm) {
-        log.info("Получен запрос на обновление фильма с с id = {} в базе данных", newFilm.getId());
-        delete(DELETE_FILM_GENRES, newFilm.getId());
-        update(UPDATE_FILM, newFilm.getName(), newFilm.getDescription(), newFilm.getReleaseDate(), newFilm.getDuration(), newFilm.getMpa().getId(), newFilm.getId());
-        log.info("Обновлен фильм с с id = {} в базе данных", newFilm.getId());
-        for (Genre genre : newFilm.getGenres()) {
-            insert(ADD_FILM_GENRES, newFilm.getId(), genre.getId());
-        }
-        log.info("Обновлены все жанры фильма с id = {}", newFilm.getId());
+        log.debug("Получен запрос на обновление фильма с с id = {} в базе данных", newFilm.getId());
+        resolveMpaAndGenres(newFilm);
+        Set<Integer> newGenreIds = newFilm.getGenres().stream().map(Genre::getId).collect(Collectors.toSet());
+        transactionTemplate.executeWithoutResult(status -> {
+            update(UPDATE_FILM, newFilm.getName(), newFilm.getDescription(), newFilm.getReleaseDate(), newFilm.getDuration(), newFilm.getMpa().getId(), newFilm.getId());
+            Set<Integer> currentGenreIds = new HashSet<>(queryForList(GET_FILM_GENRE_IDS, Integer.class, newFilm.getId()));
+            List<Integer> removedGenreIds = currentGenreIds.stream().filter(genreId -> !newGenreIds.contains(genreId)).toList();
+            List<Integer> addedGenreIds = newGenreIds.stream().filter(genreId -> !currentGenreIds.contains(genreId)).toList();
+            batchUpdate(DELETE_FILM_GENRE, toGenreParams(newFilm.getId(), removedGenreIds));
+            batchUpdate(ADD_FILM_GENRES, toGenreParams(newFilm.getId(), addedGenreIds));
+            popularityIndex.putFilm(newFilm);
+            searchIndex.putFilm(newFilm);
+        });
+        cache.evict(newFilm.getId());
+        identityMap.put(newFilm.getId(), newFilm);
+        log.debug("Обновлен фильм с id = {} и все его жанры в базе данных", newFilm.getId());
     }
 
     @Override
     public void deleteFilm(Integer filmId) {
-        log.info("Получен запрос на удаление фильма с id = {} из базы данных", filmId);
-        delete(DELETE_FILM_GENRES, filmId);
-        delete(DELETE_FILM, filmId);
-        delete(DELETE_LIKES_WHEN_DELETE_FILM, filmId);
-        log.info("Удален фильм с id = {} и его жанры из базы данных", filmId);
+        log.debug("Получен запрос на удаление фильма с id = {} из базы данных", filmId);
+        transactionTemplate.executeWithoutResult(status -> {
+            delete(DELETE_FILM_GENRES, filmId);
+            delete(DELETE_LIKES_WHEN_DELETE_FILM, filmId);
+            delete(DELETE_FILM, filmId);
+            popularityIndex.removeFilm(filmId);
+            likesMatrix.removeFilm(filmId);
+            searchIndex.removeFilm(filmId);
+        });
+        cache.evict(filmId);
+        identityMap.evict(filmId);
+        log.debug("Удален фильм с id = {} и его жанры из базы данных", filmId);
     }
 
     @Override
     public List<Film> getBaseOfFilms() {
-        log.info("Получен запрос в базу данных на получение всех фильмов");
-        return findMany(GET_ALL_FILMS);
+        log.debug("Получен запрос в базу данных на получение всех фильмов");
+        List<Film> films = findMany(GET_ALL_FILMS);
+        loadGenres(films, GET_GENRES_OF_ALL_FILMS);
+        return films;
+    }
+
+    @Override
+    public List<Film> getPopularFilms(Integer count, Integer genreId, Integer mpaId, Integer year) {
+        if (log.isDebugEnabled()) {
+            log.debug("Получен запрос в базу данных на получение {} популярных фильмов с жанром {}, MPA {} и годом выпуска {}",
+                    count, genreId, mpaId, year);
+        }
+        return findFilmsByIdsInOrder(popularityIndex.getTopFilmIds(count, genreId, mpaId, year));
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, boolean byName, boolean byDescription, int count) {
+        log.debug("Получен запрос на поиск {} фильмов по запросу \"{}\"", count, query);
+        return findFilmsByIdsInOrder(searchIndex.search(query, byName, byDescription, count));
+    }
+
+    @Override
+    public List<Film> getRecommendedFilms(Integer userId, int count) {
+        log.debug("Получен запрос на получение {} рекомендуемых фильмов для пользователя с id = {}", count, userId);
+        return findFilmsByIdsInOrder(likesMatrix.getRecommendedFilmIds(userId, count));
     }
 
     @Override
-    public List<Film> getPopularFilms(Integer count) {
-        log.info("Получен запрос в базу данных на получение {} популярных фильмов", count);
-        return findMany(GET_POPULAR_FILMS, count);
+    public boolean addLikeToFilm(Integer filmId, Integer userId) {
+        log.debug("Получен запрос в базу данных на добавление лайка к фильму с id = {} от пользователя с id = {}", filmId, userId);
+        boolean added = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            try {
+                insert(ADD_LIKE_TO_FILM, filmId, userId);
+            } catch (DuplicateKeyException e) {
+                return false;
+            }
+            update(CHANGE_LIKE_COUNT, 1, filmId);
+            popularityIndex.addLike(filmId);
+            likesMatrix.addLike(filmId, userId);
+            return true;
+        }));
+        log.debug(added ? "Лайк был добавлен" : "Лайк уже был поставлен ранее");
+        return added;
+    }
+
+    @Override
+    public void addLikes(List<Like> likes) {
+        log.debug("Получен запрос в базу данных на добавление {} лайков", likes.size());
+        batchUpdate(ADD_LIKE_TO_FILM, likes.stream().map(like -> new Object[]{like.getFilmId(), like.getUserId()}).toList());
+        batchUpdate(CHANGE_LIKE_COUNT, likes.stream()
+                .collect(Collectors.groupingBy(Like::getFilmId, Collectors.counting()))
+                .entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList());
+        popularityIndex.addLikes(likes.stream().map(Like::getFilmId).toList());
+        likesMatrix.addLikes(likes);
+        log.debug("В базу данных было добавлено {} лайков", likes.size());
+    }
+
+    @Override
+    public boolean deleteLikeFromFilm(Integer filmId, Integer userId) {
+        log.debug("Получен запрос в базу данных на удаление лайка у фильма с id = {} от пользователя с id = {} ", filmId, userId);
+        boolean deleted = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (!delete(DELETE_LIKE_FROM_FILM, filmId, userId)) {
+                return false;
+            }
+            update(CHANGE_LIKE_COUNT, -1, filmId);
+            popularityIndex.removeLike(filmId);
+            likesMatrix.removeLike(filmId, userId);
+            return true;
+        }));
+        log.debug(deleted ? "Лайк был удален" : "Лайк не найден");
+        return deleted;
     }
 
     @Override
-    public void addLikeToFilm(Integer filmId, Integer userId) {
-        log.info("Получен запрос в базу данных на добавление лайка к фильму с id = {} от пользователя с id = {}", filmId, userId);
-        insert(ADD_LIKE_TO_FILM, filmId, userId);
-        log.info("Лайк был добавлен");
+    public int getLikeCount(Integer filmId) {
+        Integer likeCount = queryForObject(GET_LIKE_COUNT, Integer.class, filmId);
+        return likeCount == null ? 0 : likeCount;
     }
 
+    /**
+     * Счетчик исправляется только если он не изменился с момента сверки, и та же разница применяется к рейтингу.
+     * Рейтинг не перечитывается из базы: в нем уже учтены лайки незавершенных транзакций, которых в базе еще не видно.
+     */
     @Override
-    public void deleteLikeFromFilm(Integer filmId, Integer userId) {
-        log.info("Получен запрос в базу данных на удаление лайка у фильма с id = {} от пользователя с id = {} ", filmId, userId);
-        delete(DELETE_LIKE_FROM_FILM, filmId, userId);
-        log.info("Лайк был удален");
+    public int repairLikeCounts() {
+        log.debug("Получен запрос в базу данных на сверку счетчиков лайков с таблицей лайков");
+        List<int[]> wrongCounts = new ArrayList<>();
+        query(GET_WRONG_LIKE_COUNTS, rs -> {
+            wrongCounts.add(new int[]{rs.getInt("id"), rs.getInt("like_count"), rs.getInt("actual")});
+        });
+        int repaired = 0;
+        for (int[] wrongCount : wrongCounts) {
+            if (update(REPAIR_LIKE_COUNT, wrongCount[2], wrongCount[0], wrongCount[1]) > 0) {
+                popularityIndex.repairLikes(wrongCount[0], wrongCount[2] - wrongCount[1]);
+                repaired++;
+            }
+        }
+        if (repaired > 0) {
+            log.warn("Исправлены счетчики лайков у {} фильмов", repaired);
+        }
+        return repaired;
     }
 
     @Override
     public List<User> getUserLikesOnFilm(Integer filmId) {
-        log.info("Получен запрос в базу данных на получение списка пользователей, которые поставили лайк фильму с id = {}", filmId);
-        return jdbcTemplate.query(GET_USERS_THAT_LIKED_FILM, userMapper, filmId);
+        log.debug("Получен запрос в базу данных на получение списка пользователей, которые поставили лайк фильму с id = {}", filmId);
+        return query(GET_USERS_THAT_LIKED_FILM, userMapper, filmId);
+    }
+
+    @Override
+    public List<User> getUserLikesOnFilmPage(Integer filmId, Integer afterId, int limit) {
+        if (log.isDebugEnabled()) {
+            log.debug("Получен запрос в базу данных на получение {} пользователей после пользователя с id = {}, которые поставили лайк фильму с id = {}",
+                    limit, afterId, filmId);
+        }
+        return query(GET_USERS_THAT_LIKED_FILM_PAGE, userMapper, filmId, afterId, limit);
+    }
+
+    private List<Film> findFilmsByIdsInOrder(List<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String placeholders = String.join(",", Collections.nCopies(filmIds.size(), "?"));
+        Map<Integer, Film> films = findMany(String.format(GET_FILMS_BY_IDS, placeholders), filmIds.toArray())
+                .stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        List<Film> result = filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        loadGenres(result, String.format(GET_GENRES_OF_FILMS, placeholders), filmIds.toArray());
+        return result;
+    }
+
+    private void loadGenres(List<Film> films, String query, Object... params) {
+        if (films.isEmpty()) {
+            return;
+        }
+        Map<Integer, Film> filmsById = films.stream().collect(Collectors.toMap(Film::getId, Function.identity()));
+        query(query, rs -> {
+            Film film = filmsById.get(rs.getInt("film_id"));
+            if (film != null) {
+                film.addGenre(referenceCatalog.getGenre(rs.getInt("genre_id")));
+            }
+        }, params);
+    }
+
+    private static List<Object[]> toGenreParams(Integer filmId, List<Integer> genreIds) {
+        return genreIds.stream().map(genreId -> new Object[]{filmId, genreId}).toList();
+    }
+
+    private void resolveMpaAndGenres(Film film) {
+        if (film.getMpa() != null) {
+            Mpa mpa = referenceCatalog.getMpa(film.getMpa().getId());
+            if (mpa == null) {
+                log.error("MPA с id = {} не найден", film.getMpa().getId());
+                throw new NotFoundException(String.format("MPA с id = %d не найден", film.getMpa().getId()));
+            }
+            film.setMpa(mpa);
+        }
+        Set<Genre> genres = new TreeSet<>(Comparator.comparingInt(Genre::getId));
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                Genre catalogGenre = referenceCatalog.getGenre(genre.getId());
+                if (catalogGenre == null) {
+                    log.error("Жанр с id = {} не найден", genre.getId());
+                    throw new NotFoundException(String.format("Жанр с id = %d не найден", genre.getId()));
+                }
+                genres.add(catalogGenre);
+            }
+        }
+        film.setGenres(new LinkedHashSet<>(genres));
     }
 }
@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.TransactionCompensation;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Рейтинг популярности фильмов по количеству лайков, который хранится в памяти.
+ * Загружается из счетчика films.like_count при старте и далее обновляется
+ * при добавлении и удалении лайков, поэтому получение самых популярных фильмов не требует агрегации по таблице лайков.
+ * Кроме общего рейтинга хранятся отдельные рейтинги по каждому жанру, каждому MPA и каждому году выпуска.
+ * Фильм с лайками лежит в (3 + число его жанров) отсортированных множествах, поэтому память растет линейно
+ * с числом фильмов, а каждый лайк или его удаление переставляет фильм во всех этих множествах
+ * за O((3 + число жанров) * log n) под общей блокировкой индекса. Сочетания фильтров отдельно не хранятся:
+ * запрос обходит самый короткий из рейтингов заданных фильтров и отбрасывает фильмы, не подходящие
+ * под остальные, поэтому при редком сочетании он может просмотреть весь этот рейтинг.
+ */
+@Slf4j
+@Component
+public class FilmPopularityIndex {
+    private static final String GET_FILMS = "SELECT id, like_count, MPA_id, releaseDate FROM films";
+    private static final String GET_FILMS_GENRES = "SELECT film_id, genre_id FROM films_genres ORDER BY film_id, genre_id";
+    private static final int ANY = 0;
+    private static final Categories UNKNOWN = new Categories(ANY, ANY, new int[0]);
+    private final JdbcTemplate jdbcTemplate;
+    private final QueryMetrics metrics;
+    private final Map<Integer, Integer> likesCount = new HashMap<>();
+    private final Map<Integer, Categories> categories = new HashMap<>();
+    private final Map<RankingKey, TreeSet<Integer>> rankings = new HashMap<>();
+    private final Comparator<Integer> byLikes = Comparator
+            .comparing((Integer filmId) -> likesCount.get(filmId))
+            .reversed()
+            .thenComparing(Comparator.naturalOrder());
+
+    @Autowired
+    public FilmPopularityIndex(JdbcTemplate jdbcTemplate, QueryMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+        metrics.registerQueries(getClass());
+        reload();
+    }
+
+    public synchronized void reload() {
+        likesCount.clear();
+        categories.clear();
+        rankings.clear();
+        Map<Integer, List<Integer>> genresByFilm = new HashMap<>();
+        metrics.query(jdbcTemplate, GET_FILMS_GENRES, rs -> {
+            genresByFilm.computeIfAbsent(rs.getInt("film_id"), filmId -> new ArrayList<>()).add(rs.getInt("genre_id"));
+        });
+        metrics.query(jdbcTemplate, GET_FILMS, rs -> {
+            int filmId = rs.getInt("id");
+            Date releaseDate = rs.getDate("releaseDate");
+            int[] genreIds = genresByFilm.getOrDefault(filmId, List.of()).stream().mapToInt(Integer::intValue).toArray();
+            categories.put(filmId, new Categories(rs.getInt("MPA_id"), releaseDate == null ? ANY : releaseDate.toLocalDate().getYear(), genreIds));
+            setLikesCount(filmId, rs.getInt("like_count"));
+        });
+        log.info("Загружен рейтинг популярности для {} фильмов", likesCount.size());
+    }
+
+    public synchronized void putFilm(Film film) {
+        Categories previous = categories.get(film.getId());
+        setCategories(film.getId(), new Categories(
+                film.getMpa() == null ? ANY : film.getMpa().getId(),
+                film.getReleaseDate() == null ? ANY : film.getReleaseDate().getYear(),
+                film.getGenres().stream().mapToInt(Genre::getId).toArray()));
+        TransactionCompensation.onRollback(() -> setCategories(film.getId(), previous));
+    }
+
+    public synchronized void addLike(Integer filmId) {
+        changeLikesCount(filmId, 1);
+        TransactionCompensation.onRollback(() -> changeLikesCount(filmId, -1));
+    }
+
+    public synchronized void addLikes(List<Integer> filmIds) {
+        filmIds.forEach(filmId -> changeLikesCount(filmId, 1));
+        TransactionCompensation.onRollback(() -> filmIds.forEach(filmId -> changeLikesCount(filmId, -1)));
+    }
+
+    public synchronized void removeLike(Integer filmId) {
+        changeLikesCount(filmId, -1);
+        TransactionCompensation.onRollback(() -> changeLikesCount(filmId, 1));
+    }
+
+    /**
+     * Поправка после сверки счетчика с таблицей лайков: delta - разница, на которую исправлен films.like_count.
+     */
+    public synchronized void repairLikes(Integer filmId, int delta) {
+        changeLikesCount(filmId, delta);
+    }
+
+    public synchronized void removeFilm(Integer filmId) {
+        int previousCount = likesCount.getOrDefault(filmId, 0);
+        Categories previousCategories = categories.get(filmId);
+        setLikesCount(filmId, 0);
+        categories.remove(filmId);
+        TransactionCompensation.onRollback(() -> {
+            setCategories(filmId, previousCategories);
+            changeLikesCount(filmId, previousCount);
+        });
+    }
+
+    public synchronized List<Integer> getTopFilmIds(int count) {
+        return getTopFilmIds(count, null, null, null);
+    }
+
+    /**
+     * Самые популярные фильмы с заданными жанром, MPA и годом выпуска; null означает любое значение.
+     * Обходится самый короткий из рейтингов заданных фильтров, остальные фильтры проверяются для каждого фильма.
+     */
+    public synchronized List<Integer> getTopFilmIds(int count, Integer genreId, Integer mpaId, Integer year) {
+        TreeSet<Integer> ranking = rankings.getOrDefault(new RankingKey(ANY, ANY, ANY), new TreeSet<>());
+        if (genreId != null) {
+            ranking = shorter(ranking, new RankingKey(genreId, ANY, ANY));
+        }
+        if (mpaId != null) {
+            ranking = shorter(ranking, new RankingKey(ANY, mpaId, ANY));
+        }
+        if (year != null) {
+            ranking = shorter(ranking, new RankingKey(ANY, ANY, year));
+        }
+        List<Integer> result = new ArrayList<>(Math.max(0, Math.min(count, ranking.size())));
+        Iterator<Integer> iterator = ranking.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            Integer filmId = iterator.next();
+            if (categoriesOf(filmId).matches(genreId, mpaId, year)) {
+                result.add(filmId);
+            }
+        }
+        return result;
+    }
+
+    private TreeSet<Integer> shorter(TreeSet<Integer> ranking, RankingKey key) {
+        TreeSet<Integer> other = rankings.getOrDefault(key, new TreeSet<>());
+        return other.size() < ranking.size() ? other : ranking;
+    }
+
+    private synchronized void changeLikesCount(Integer filmId, int delta) {
+        setLikesCount(filmId, likesCount.getOrDefault(filmId, 0) + delta);
+    }
+
+    private void setLikesCount(Integer filmId, int count) {
+        if (likesCount.containsKey(filmId)) {
+            forEachRanking(filmId, ranking -> ranking.remove(filmId));
+        }
+        if (count > 0) {
+            likesCount.put(filmId, count);
+            forEachRanking(filmId, ranking -> ranking.add(filmId));
+        } else {
+            likesCount.remove(filmId);
+        }
+    }
+
+    private synchronized void setCategories(Integer filmId, Categories filmCategories) {
+        boolean ranked = likesCount.containsKey(filmId);
+        if (ranked) {
+            forEachRanking(filmId, ranking -> ranking.remove(filmId));
+        }
+        if (filmCategories == null) {
+            categories.remove(filmId);
+        } else {
+            categories.put(filmId, filmCategories);
+        }
+        if (ranked) {
+            forEachRanking(filmId, ranking -> ranking.add(filmId));
+        }
+    }
+
+    private void forEachRanking(Integer filmId, Consumer<TreeSet<Integer>> action) {
+        Categories filmCategories = categoriesOf(filmId);
+        action.accept(ranking(ANY, ANY, ANY));
+        for (int genreId : filmCategories.genreIds()) {
+            action.accept(ranking(genreId, ANY, ANY));
+        }
+        if (filmCategories.mpaId() != ANY) {
+            action.accept(ranking(ANY, filmCategories.mpaId(), ANY));
+        }
+        if (filmCategories.year() != ANY) {
+            action.accept(ranking(ANY, ANY, filmCategories.year()));
+        }
+    }
+
+    private Categories categoriesOf(Integer filmId) {
+        return categories.getOrDefault(filmId, UNKNOWN);
+    }
+
+    private TreeSet<Integer> ranking(int genreId, int mpaId, int year) {
+        return rankings.computeIfAbsent(new RankingKey(genreId, mpaId, year), key -> new TreeSet<>(byLikes));
+    }
+
+    private record RankingKey(int genreId, int mpaId, int year) {
+    }
+
+    private record Categories(int mpaId, int year, int[] genreIds) {
+        boolean matches(Integer genreId, Integer mpaId, Integer year) {
+            return (genreId == null || Arrays.stream(genreIds).anyMatch(id -> id == genreId))
+                    && (mpaId == null || this.mpaId == mpaId)
+                    && (year == null || this.year == year);
+        }
+    }
+}
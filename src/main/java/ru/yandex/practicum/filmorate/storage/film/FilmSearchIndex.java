@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.TransactionCompensation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Инвертированный индекс по названиям и описаниям фильмов, который хранится в памяти.
+ * Текст разбивается на слова из букв и цифр (любого алфавита), приводится к нижнему регистру, ё заменяется на е.
+ * Словарь терминов отсортирован, поэтому слово запроса находит и точное совпадение, и все термины с таким префиксом.
+ * Загружается из таблицы films один раз при старте и далее обновляется при добавлении, изменении и удалении фильмов.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private static final String GET_FILMS_TEXT = "SELECT id, name, description FROM films";
+    private static final double NAME_WEIGHT = 2;
+    private static final double DESCRIPTION_WEIGHT = 1;
+    private static final double PREFIX_MATCH_WEIGHT = 0.5;
+    private final TreeMap<String, Map<Integer, Integer>> nameTerms = new TreeMap<>();
+    private final TreeMap<String, Map<Integer, Integer>> descriptionTerms = new TreeMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    @Autowired
+    public FilmSearchIndex(JdbcTemplate jdbcTemplate, QueryMetrics metrics) {
+        metrics.registerQueries(getClass());
+        metrics.query(jdbcTemplate, GET_FILMS_TEXT, rs -> {
+            index(rs.getInt("id"), new Document(rs.getString("name"), rs.getString("description")));
+        });
+        log.info("Загружен поисковый индекс для {} фильмов, терминов в названиях - {}, в описаниях - {}",
+                documents.size(), nameTerms.size(), descriptionTerms.size());
+    }
+
+    public synchronized void putFilm(Film film) {
+        Document previous = documents.get(film.getId());
+        index(film.getId(), new Document(film.getName(), film.getDescription()));
+        TransactionCompensation.onRollback(() -> index(film.getId(), previous));
+    }
+
+    public synchronized void removeFilm(int filmId) {
+        Document previous = documents.get(filmId);
+        index(filmId, null);
+        TransactionCompensation.onRollback(() -> index(filmId, previous));
+    }
+
+    /**
+     * Фильмы, в которых нашлось каждое слово запроса, по убыванию релевантности.
+     * Вес совпадения - число вхождений термина, умноженное на его idf и на вес поля (название важнее описания);
+     * совпадение только по префиксу весит вдвое меньше точного.
+     */
+    public synchronized List<Integer> search(String query, boolean byName, boolean byDescription, int count) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Double> scores = null;
+        for (String term : new HashSet<>(queryTerms)) {
+            Map<Integer, Double> termScores = new HashMap<>();
+            if (byName) {
+                score(nameTerms, term, NAME_WEIGHT, termScores);
+            }
+            if (byDescription) {
+                score(descriptionTerms, term, DESCRIPTION_WEIGHT, termScores);
+            }
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((filmId, score) -> score + termScores.get(filmId));
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private void score(TreeMap<String, Map<Integer, Integer>> terms, String term, double fieldWeight, Map<Integer, Double> scores) {
+        for (Map.Entry<String, Map<Integer, Integer>> entry : terms.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            double matchWeight = entry.getKey().length() == term.length() ? 1 : PREFIX_MATCH_WEIGHT;
+            double idf = Math.log(1 + (double) documents.size() / entry.getValue().size());
+            entry.getValue().forEach((filmId, frequency) -> scores.merge(filmId, fieldWeight * matchWeight * idf * frequency, Double::sum));
+        }
+    }
+
+    private synchronized void index(int filmId, Document document) {
+        Document previous = document == null ? documents.remove(filmId) : documents.put(filmId, document);
+        if (previous != null) {
+            unindex(nameTerms, filmId, previous.name());
+            unindex(descriptionTerms, filmId, previous.description());
+        }
+        if (document != null) {
+            index(nameTerms, filmId, document.name());
+            index(descriptionTerms, filmId, document.description());
+        }
+    }
+
+    private static void index(TreeMap<String, Map<Integer, Integer>> terms, int filmId, String text) {
+        for (String token : tokenize(text)) {
+            terms.computeIfAbsent(token, term -> new HashMap<>()).merge(filmId, 1, Integer::sum);
+        }
+    }
+
+    private static void unindex(TreeMap<String, Map<Integer, Integer>> terms, int filmId, String text) {
+        for (String token : new HashSet<>(tokenize(text))) {
+            Map<Integer, Integer> postings = terms.get(token);
+            if (postings != null && postings.remove(filmId) != null && postings.isEmpty()) {
+                terms.remove(token);
+            }
+        }
+    }
+
+    private record Document(String name, String description) {
+    }
+}
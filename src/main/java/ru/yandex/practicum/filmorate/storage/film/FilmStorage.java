@@ -1,26 +1,48 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     void addFilm(Film film);
 
+    void addFilms(List<Film> films);
+
+    void reserveIds(int maxId);
+
     Film getFilm(Integer id);
 
     void deleteFilm(Integer idOfFilm);
 
     List<Film> getBaseOfFilms();
 
+    List<Film> getFilmsPage(Integer afterId, int limit);
+
+    void streamFilms(Consumer<Film> consumer);
+
     void updateFilm(Film newFilm);
 
-    List<Film> getPopularFilms(Integer count);
+    List<Film> getPopularFilms(Integer count, Integer genreId, Integer mpaId, Integer year);
+
+    List<Film> searchFilms(String query, boolean byName, boolean byDescription, int count);
 
-    void addLikeToFilm(Integer filmId, Integer userId);
+    List<Film> getRecommendedFilms(Integer userId, int count);
 
-    void deleteLikeFromFilm(Integer filmId, Integer userId);
+    boolean addLikeToFilm(Integer filmId, Integer userId);
+
+    void addLikes(List<Like> likes);
+
+    boolean deleteLikeFromFilm(Integer filmId, Integer userId);
+
+    int getLikeCount(Integer filmId);
+
+    int repairLikeCounts();
 
     List<User> getUserLikesOnFilm(Integer filmId);
+
+    List<User> getUserLikesOnFilmPage(Integer filmId, Integer afterId, int limit);
 }
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодическая сверка денормализованного счетчика films.like_count с таблицей likes.
+ * Счетчик меняется в одной транзакции с лайками, поэтому расхождения возможны только после ручных правок базы
+ * или добавления столбца в уже заполненную базу. Запускается после старта приложения
+ * и далее с интервалом filmorate.likes.repair-interval.
+ */
+@Slf4j
+@Component
+public class LikeCountRepairJob {
+    private final FilmDbStorage filmStorage;
+
+    @Autowired
+    public LikeCountRepairJob(FilmDbStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void repairOnStartup() {
+        repair();
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.repair-interval:PT1H}", initialDelayString = "${filmorate.likes.repair-interval:PT1H}")
+    public void repair() {
+        int repaired = filmStorage.repairLikeCounts();
+        log.info("Сверка счетчиков лайков завершена, исправлено фильмов: {}", repaired);
+    }
+}
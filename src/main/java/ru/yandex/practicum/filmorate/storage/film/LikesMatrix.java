@@ -0,0 +1,243 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.TransactionCompensation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntConsumer;
+
+/**
+ * Матрица лайков пользователь × фильм, которая хранится в памяти в виде разреженных битовых карт:
+ * для каждого пользователя - карта id понравившихся фильмов, для каждого фильма - карта id поставивших лайк пользователей.
+ * Число общих лайков двух пользователей считается как число единиц в пересечении их карт.
+ * Загружается из таблицы likes один раз при старте и далее обновляется при добавлении и удалении лайков.
+ */
+@Slf4j
+@Component
+public class LikesMatrix {
+    private static final String GET_LIKES = "SELECT user_id, film_id FROM likes";
+    private static final int SIMILAR_USERS = 10;
+    private final Map<Integer, Bitmap> filmsByUser = new HashMap<>();
+    private final Map<Integer, Bitmap> usersByFilm = new HashMap<>();
+
+    @Autowired
+    public LikesMatrix(JdbcTemplate jdbcTemplate, QueryMetrics metrics) {
+        metrics.registerQueries(getClass());
+        metrics.query(jdbcTemplate, GET_LIKES, rs -> {
+            set(rs.getInt("user_id"), rs.getInt("film_id"));
+        });
+        log.info("Загружена матрица лайков для {} пользователей и {} фильмов", filmsByUser.size(), usersByFilm.size());
+    }
+
+    public synchronized void addLike(int filmId, int userId) {
+        if (set(userId, filmId)) {
+            TransactionCompensation.onRollback(() -> clear(userId, filmId));
+        }
+    }
+
+    public synchronized void addLikes(List<Like> likes) {
+        List<Like> added = new ArrayList<>();
+        for (Like like : likes) {
+            if (set(like.getUserId(), like.getFilmId())) {
+                added.add(like);
+            }
+        }
+        TransactionCompensation.onRollback(() -> added.forEach(like -> clear(like.getUserId(), like.getFilmId())));
+    }
+
+    public synchronized void removeLike(int filmId, int userId) {
+        if (clear(userId, filmId)) {
+            TransactionCompensation.onRollback(() -> set(userId, filmId));
+        }
+    }
+
+    public synchronized void removeFilm(int filmId) {
+        Bitmap users = usersByFilm.get(filmId);
+        if (users != null) {
+            users.forEach(userId -> removeLike(filmId, userId));
+        }
+    }
+
+    public synchronized void removeUser(int userId) {
+        Bitmap films = filmsByUser.get(userId);
+        if (films != null) {
+            films.forEach(filmId -> removeLike(filmId, userId));
+        }
+    }
+
+    /**
+     * Фильмы, которые понравились пользователям с наибольшим числом общих лайков и которые пользователь еще не оценил.
+     * Похожие пользователи ищутся только среди тех, кто лайкнул хотя бы один фильм пользователя,
+     * а вес фильма - сумма числа общих лайков похожих пользователей, которые его лайкнули.
+     */
+    public synchronized List<Integer> getRecommendedFilmIds(int userId, int count) {
+        Bitmap films = filmsByUser.get(userId);
+        if (films == null) {
+            return new ArrayList<>();
+        }
+        Bitmap candidates = new Bitmap();
+        films.forEach(filmId -> candidates.or(usersByFilm.get(filmId)));
+        candidates.clear(userId);
+        PriorityQueue<long[]> similarUsers = new PriorityQueue<>((a, b) -> a[1] != b[1] ? Long.compare(a[1], b[1]) : Long.compare(b[0], a[0]));
+        candidates.forEach(candidateId -> {
+            similarUsers.add(new long[]{candidateId, films.intersectionCardinality(filmsByUser.get(candidateId))});
+            if (similarUsers.size() > SIMILAR_USERS) {
+                similarUsers.poll();
+            }
+        });
+        Map<Integer, Long> scores = new HashMap<>();
+        for (long[] similarUser : similarUsers) {
+            filmsByUser.get((int) similarUser[0]).forEach(filmId -> {
+                if (!films.get(filmId)) {
+                    scores.merge(filmId, similarUser[1], Long::sum);
+                }
+            });
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private synchronized boolean set(int userId, int filmId) {
+        usersByFilm.computeIfAbsent(filmId, id -> new Bitmap()).set(userId);
+        return filmsByUser.computeIfAbsent(userId, id -> new Bitmap()).set(filmId);
+    }
+
+    private synchronized boolean clear(int userId, int filmId) {
+        clear(usersByFilm, filmId, userId);
+        return clear(filmsByUser, userId, filmId);
+    }
+
+    private static boolean clear(Map<Integer, Bitmap> bitmaps, int key, int bit) {
+        Bitmap bitmap = bitmaps.get(key);
+        if (bitmap == null || !bitmap.clear(bit)) {
+            return false;
+        }
+        if (bitmap.isEmpty()) {
+            bitmaps.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Разреженная битовая карта: хранятся только ненулевые 64-битные слова вместе с их номерами (id >>> 6),
+     * номера упорядочены по возрастанию. Память пропорциональна числу установленных битов, а не максимальному id,
+     * поэтому один фильм или пользователь с большим id не раздувает карты всех, кто с ним связан.
+     * Объединение и пересечение идут слиянием двух упорядоченных массивов.
+     */
+    private static final class Bitmap {
+        private int[] keys = new int[4];
+        private long[] words = new long[4];
+        private int size;
+
+        boolean get(int id) {
+            int index = Arrays.binarySearch(keys, 0, size, id >>> 6);
+            return index >= 0 && (words[index] & (1L << id)) != 0;
+        }
+
+        boolean set(int id) {
+            int key = id >>> 6;
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index < 0) {
+                index = -index - 1;
+                insertWord(index, key, 0);
+            }
+            boolean changed = (words[index] & (1L << id)) == 0;
+            words[index] |= 1L << id;
+            return changed;
+        }
+
+        boolean clear(int id) {
+            int index = Arrays.binarySearch(keys, 0, size, id >>> 6);
+            if (index < 0 || (words[index] & (1L << id)) == 0) {
+                return false;
+            }
+            words[index] &= ~(1L << id);
+            if (words[index] == 0) {
+                System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+                System.arraycopy(words, index + 1, words, index, size - index - 1);
+                size--;
+            }
+            return true;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void or(Bitmap other) {
+            int[] mergedKeys = new int[size + other.size];
+            long[] mergedWords = new long[size + other.size];
+            int i = 0;
+            int j = 0;
+            int merged = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || i < size && keys[i] < other.keys[j]) {
+                    mergedKeys[merged] = keys[i];
+                    mergedWords[merged++] = words[i++];
+                } else if (i == size || other.keys[j] < keys[i]) {
+                    mergedKeys[merged] = other.keys[j];
+                    mergedWords[merged++] = other.words[j++];
+                } else {
+                    mergedKeys[merged] = keys[i];
+                    mergedWords[merged++] = words[i++] | other.words[j++];
+                }
+            }
+            keys = mergedKeys;
+            words = mergedWords;
+            size = merged;
+        }
+
+        long intersectionCardinality(Bitmap other) {
+            long result = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (keys[i] < other.keys[j]) {
+                    i++;
+                } else if (other.keys[j] < keys[i]) {
+                    j++;
+                } else {
+                    result += Long.bitCount(words[i++] & other.words[j++]);
+                }
+            }
+            return result;
+        }
+
+        void forEach(IntConsumer consumer) {
+            int[] keysSnapshot = Arrays.copyOf(keys, size);
+            long[] wordsSnapshot = Arrays.copyOf(words, size);
+            for (int i = 0; i < keysSnapshot.length; i++) {
+                long word = wordsSnapshot[i];
+                while (word != 0) {
+                    consumer.accept(keysSnapshot[i] * 64 + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private void insertWord(int index, int key, long word) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                words = Arrays.copyOf(words, size * 2);
+            }
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(words, index, words, index + 1, size - index);
+            keys[index] = key;
+            words[index] = word;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.TransactionCompensation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Граф дружбы пользователей, который хранится в памяти.
+ * Для каждого пользователя хранятся отсортированные массивы id: записи таблицы friends, где он user_id,
+ * и подтвержденные записи, где он friend_id. Друзья пользователя - объединение этих массивов,
+ * проверка дружбы - бинарный поиск, общие друзья - пересечение отсортированных массивов.
+ * Загружается из таблицы friends один раз при старте и далее обновляется при записи дружбы.
+ */
+@Slf4j
+@Component
+public class FriendshipGraph {
+    private static final String GET_FRIENDSHIPS = "SELECT user_id, friend_id, confirmed FROM friends";
+    private static final int[] EMPTY = new int[0];
+    private final Map<Integer, SortedIds> outgoing = new HashMap<>();
+    private final Map<Integer, SortedIds> confirmedIncoming = new HashMap<>();
+
+    @Autowired
+    public FriendshipGraph(JdbcTemplate jdbcTemplate, QueryMetrics metrics) {
+        metrics.registerQueries(getClass());
+        metrics.query(jdbcTemplate, GET_FRIENDSHIPS, rs -> {
+            link(rs.getInt("user_id"), rs.getInt("friend_id"), rs.getBoolean("confirmed"));
+        });
+        log.info("Загружен граф дружбы для {} пользователей", outgoing.size());
+    }
+
+    public synchronized boolean isFriend(int userId, int friendId) {
+        return contains(outgoing, userId, friendId) || contains(confirmedIncoming, userId, friendId);
+    }
+
+    public synchronized int[] getFriendIds(int userId) {
+        return union(ids(outgoing, userId), ids(confirmedIncoming, userId));
+    }
+
+    public synchronized int[] getCommonFriendIds(int userId, int otherUserId) {
+        int[] friends = getFriendIds(userId);
+        int[] otherFriends = getFriendIds(otherUserId);
+        int[] smaller = friends.length <= otherFriends.length ? friends : otherFriends;
+        int[] larger = smaller == friends ? otherFriends : friends;
+        int[] result = new int[smaller.length];
+        int size = 0;
+        for (int id : smaller) {
+            if (Arrays.binarySearch(larger, id) >= 0) {
+                result[size++] = id;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Пользователи с наибольшим числом общих друзей, которые еще не являются друзьями пользователя.
+     * Обход друзей друзей собирает id кандидатов в массив, после сортировки одинаковые id идут подряд
+     * и число общих друзей считается за один проход, а лучшие count кандидатов выбираются кучей размера count.
+     */
+    public synchronized int[] getRecommendedFriendIds(int userId, int count) {
+        int[] friends = getFriendIds(userId);
+        int[] candidates = new int[16];
+        int size = 0;
+        for (int friendId : friends) {
+            SortedIds first = outgoing.get(friendId);
+            SortedIds second = confirmedIncoming.get(friendId);
+            int firstSize = first == null ? 0 : first.size;
+            int secondSize = second == null ? 0 : second.size;
+            int i = 0;
+            int j = 0;
+            while (i < firstSize || j < secondSize) {
+                int candidate;
+                if (j == secondSize || (i < firstSize && first.values[i] < second.values[j])) {
+                    candidate = first.values[i++];
+                } else if (i == firstSize || second.values[j] < first.values[i]) {
+                    candidate = second.values[j++];
+                } else {
+                    candidate = first.values[i++];
+                    j++;
+                }
+                if (candidate == userId || Arrays.binarySearch(friends, candidate) >= 0) {
+                    continue;
+                }
+                if (size == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, size * 2);
+                }
+                candidates[size++] = candidate;
+            }
+        }
+        Arrays.sort(candidates, 0, size);
+        PriorityQueue<Long> top = new PriorityQueue<>();
+        for (int start = 0; start < size; ) {
+            int end = start;
+            while (end < size && candidates[end] == candidates[start]) {
+                end++;
+            }
+            top.add(((long) (end - start) << 32) | (Integer.MAX_VALUE - candidates[start]));
+            if (top.size() > count) {
+                top.poll();
+            }
+            start = end;
+        }
+        int[] result = new int[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = Integer.MAX_VALUE - (int) (top.poll() & 0xFFFFFFFFL);
+        }
+        return result;
+    }
+
+    public synchronized void addFriendship(int userId, int friendId, boolean confirmed) {
+        link(userId, friendId, confirmed);
+        TransactionCompensation.onRollback(() -> unlink(userId, friendId));
+    }
+
+    public synchronized void addFriendships(List<Friendship> friendships) {
+        friendships.forEach(friendship -> link(friendship.getUserId(), friendship.getFriendId(), friendship.isConfirmed()));
+        TransactionCompensation.onRollback(() -> friendships.forEach(friendship -> unlink(friendship.getUserId(), friendship.getFriendId())));
+    }
+
+    public synchronized void confirmFriendship(int userId, int friendId) {
+        if (contains(outgoing, userId, friendId) && !contains(confirmedIncoming, friendId, userId)) {
+            link(userId, friendId, true);
+            TransactionCompensation.onRollback(() -> unconfirm(userId, friendId));
+        }
+    }
+
+    public synchronized void unconfirmFriendship(int userId, int friendId) {
+        if (contains(confirmedIncoming, friendId, userId)) {
+            unconfirm(userId, friendId);
+            TransactionCompensation.onRollback(() -> link(userId, friendId, true));
+        }
+    }
+
+    public synchronized void removeFriendship(int userId, int friendId) {
+        if (!contains(outgoing, userId, friendId)) {
+            return;
+        }
+        boolean confirmed = contains(confirmedIncoming, friendId, userId);
+        unlink(userId, friendId);
+        TransactionCompensation.onRollback(() -> link(userId, friendId, confirmed));
+    }
+
+    public synchronized void removeUser(int userId) {
+        for (int friendId : ids(outgoing, userId)) {
+            removeFriendship(userId, friendId);
+        }
+    }
+
+    private synchronized void link(int userId, int friendId, boolean confirmed) {
+        outgoing.computeIfAbsent(userId, id -> new SortedIds()).add(friendId);
+        if (confirmed) {
+            confirmedIncoming.computeIfAbsent(friendId, id -> new SortedIds()).add(userId);
+        }
+    }
+
+    private synchronized void unlink(int userId, int friendId) {
+        remove(outgoing, userId, friendId);
+        remove(confirmedIncoming, friendId, userId);
+    }
+
+    private synchronized void unconfirm(int userId, int friendId) {
+        remove(confirmedIncoming, friendId, userId);
+    }
+
+    private static boolean contains(Map<Integer, SortedIds> adjacency, int userId, int otherId) {
+        SortedIds ids = adjacency.get(userId);
+        return ids != null && ids.contains(otherId);
+    }
+
+    private static void remove(Map<Integer, SortedIds> adjacency, int userId, int otherId) {
+        SortedIds ids = adjacency.get(userId);
+        if (ids != null && ids.remove(otherId) && ids.size == 0) {
+            adjacency.remove(userId);
+        }
+    }
+
+    private static int[] ids(Map<Integer, SortedIds> adjacency, int userId) {
+        SortedIds ids = adjacency.get(userId);
+        return ids == null ? EMPTY : Arrays.copyOf(ids.values, ids.size);
+    }
+
+    private static int[] union(int[] first, int[] second) {
+        int[] result = new int[first.length + second.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < first.length || j < second.length) {
+            if (j == second.length || (i < first.length && first[i] < second[j])) {
+                result[size++] = first[i++];
+            } else if (i == first.length || second[j] < first[i]) {
+                result[size++] = second[j++];
+            } else {
+                result[size++] = first[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Отсортированный массив id без повторов.
+     */
+    private static final class SortedIds {
+        private int[] values = new int[4];
+        private int size;
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(values, 0, size, id) >= 0;
+        }
+
+        boolean add(int id) {
+            int index = Arrays.binarySearch(values, 0, size, id);
+            if (index >= 0) {
+                return false;
+            }
+            int insertion = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, insertion, values, insertion + 1, size - insertion);
+            values[insertion] = id;
+            size++;
+            return true;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(values, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
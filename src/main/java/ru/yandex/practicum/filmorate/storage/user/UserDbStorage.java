@@ -3,114 +3,310 @@ package ru.yandex.practicum.filmorate.storage.user;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.BaseRepository;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.RequestIdentityMap;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCache;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.LikesMatrix;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Qualifier
 @Repository
 public class UserDbStorage extends BaseRepository<User> implements UserStorage {
-    private static final String ADD_USER = "MERGE INTO users (id, login, name, email, birthday) KEY (login, email) " + "VALUES (?, ?, ?, ?, ?)";
+    private static final String ADD_USER = "INSERT INTO users (login, name, email, birthday) " + "VALUES (?, ?, ?, ?)";
+    private static final String ADD_USER_WITH_ID = "INSERT INTO users (id, login, name, email, birthday) " + "VALUES (?, ?, ?, ?, ?)";
     private static final String DELETE_USER = "DELETE FROM users WHERE id = ?";
     private static final String UPDATE_USER = "UPDATE users SET login = ?, name = ?, email = ?, birthday = ? WHERE id = ?";
     private static final String GET_USER_BY_ID = "SELECT * FROM users WHERE id = ?";
     private static final String GET_ALL_USERS = "SELECT * FROM users";
+    private static final String GET_USERS_PAGE = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String STREAM_ALL_USERS = "SELECT * FROM users ORDER BY id";
+    private static final String IS_EMAIL_USED = "SELECT EXISTS(SELECT 1 FROM users WHERE email = ?)";
+    private static final String IS_LOGIN_USED = "SELECT EXISTS(SELECT 1 FROM users WHERE login = ?)";
     private static final String ADD_FRIEND_TO_USER_FALSE = "INSERT INTO friends(user_id, friend_id, confirmed) " + "VALUES (?, ?, false)";
-    private static final String ADD_FRIEND_TO_USER_TRUE = "UPDATE friends SET confirmed = true WHERE user_id = ? AND friend_id = ?";
+    private static final String ADD_FRIENDSHIP = "INSERT INTO friends(user_id, friend_id, confirmed) " + "VALUES (?, ?, ?)";
+    private static final String ADD_FRIEND_REQUEST = "INSERT INTO friends(user_id, friend_id, confirmed) SELECT ?, ?, false "
+            + "WHERE NOT EXISTS (SELECT 1 FROM friends WHERE user_id = ? AND friend_id = ?)";
+    private static final String CONFIRM_FRIENDSHIP = "UPDATE friends SET confirmed = true WHERE user_id = ? AND friend_id = ? AND confirmed = false";
+    private static final String UNCONFIRM_FRIENDSHIP = "UPDATE friends SET confirmed = false WHERE user_id = ? AND friend_id = ? AND confirmed = true";
     private static final String DELETE_FRIEND_FROM_USER = "DELETE FROM friends WHERE user_id = ? and friend_id = ?";
-    private static final String GET_USER_FRIENDS = "SELECT * FROM users WHERE id IN " + "((SELECT friend_id FROM friends WHERE user_id = ? ) UNION  (SELECT user_id FROM friends WHERE friend_id=? AND confirmed = true))";
-    private static final String GET_COMMON_FRIENDS = "WITH friends_of_2 AS (" + "    SELECT FRIEND_ID AS friend_id FROM FRIENDS WHERE USER_ID = ?" + "    UNION" + "    SELECT USER_ID AS friend_id FROM FRIENDS WHERE FRIEND_ID = ? AND CONFIRMED = TRUE" + ")," + "friends_of_3 AS (" + "    SELECT FRIEND_ID AS friend_id FROM FRIENDS WHERE USER_ID = ?" + "    UNION" + "    SELECT USER_ID AS friend_id FROM FRIENDS WHERE FRIEND_ID = ? AND CONFIRMED = TRUE" + ")\n" + "SELECT *\n" + "FROM USERS u\n" + "JOIN friends_of_2 f2 ON u.id = f2.friend_id\n" + "JOIN friends_of_3 f3 ON u.id = f3.friend_id;";
+    private static final String GET_USERS_BY_IDS = "SELECT * FROM users WHERE id IN (%s) ORDER BY id";
     private static final String DELETE_LIKES_WHEN_DELETE_USER = "DELETE FROM likes WHERE user_id = ?";
     private static final String DELETE_FRIENDS_WHEN_DELETE_USER = "DELETE FROM friends WHERE user_id = ?";
+    private static final String DELETE_FRIEND_OF_WHEN_DELETE_USER = "DELETE FROM friends WHERE friend_id = ?";
+    private static final String GET_USERS_WHO_ADDED_USER = "SELECT user_id FROM friends WHERE friend_id = ?";
+    private static final String GET_FILMS_LIKED_BY_USER = "SELECT film_id FROM likes WHERE user_id = ?";
+    private static final String DECREMENT_LIKE_COUNT = "UPDATE films SET like_count = like_count - 1 WHERE id = ?";
+    private final RequestIdentityMap<User> identityMap = new RequestIdentityMap<>("users");
+    private final FilmPopularityIndex popularityIndex;
+    private final EntityCache<User> cache;
+    private final FriendshipGraph friendshipGraph;
+    private final LikesMatrix likesMatrix;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public UserDbStorage(JdbcTemplate jdbcTemplate, RowMapper<User> mapper) {
-        super(jdbcTemplate, mapper);
+    public UserDbStorage(JdbcTemplate jdbcTemplate, RowMapper<User> mapper, FilmPopularityIndex popularityIndex, EntityCaches caches,
+                         FriendshipGraph friendshipGraph, LikesMatrix likesMatrix, PlatformTransactionManager transactionManager,
+                         QueryMetrics metrics) {
+        super(jdbcTemplate, mapper, metrics);
+        this.popularityIndex = popularityIndex;
+        this.cache = caches.getUsers();
+        this.friendshipGraph = friendshipGraph;
+        this.likesMatrix = likesMatrix;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
     public User getUser(Integer id) {
-        log.info("Получен запрос в базу данных на получение пользователя с с id = {}", id);
-        try {
-            User result = jdbcTemplate.queryForObject(GET_USER_BY_ID, mapper, id);
-            log.info("Из базы данных был получен пользователь с id = {}", id);
-            return result;
-        } catch (EmptyResultDataAccessException ignored) {
+        return identityMap.get(id, userId -> cache.get(userId, this::loadUser));
+    }
+
+    private User loadUser(Integer id) {
+        log.debug("Получен запрос в базу данных на получение пользователя с с id = {}", id);
+        Optional<User> result = findOne(GET_USER_BY_ID, id);
+        if (result.isPresent()) {
+            log.debug("Из базы данных был получен пользователь с id = {}", id);
+            return result.get();
+        } else {
             log.error("Пользователь с с id = {} не был получен из базы данных", id);
             return null;
         }
     }
 
+    @Override
+    public List<User> getUsersPage(Integer afterId, int limit) {
+        log.debug("Получен запрос в базу данных на получение {} пользователей после пользователя с id = {}", limit, afterId);
+        return findMany(GET_USERS_PAGE, afterId, limit);
+    }
+
+    @Override
+    public void streamUsers(Consumer<User> consumer) {
+        log.debug("Получен запрос в базу данных на потоковую выгрузку всех пользователей");
+        stream(STREAM_ALL_USERS, STREAM_FETCH_SIZE, rs -> {
+            consumer.accept(mapper.mapRow(rs, rs.getRow()));
+        });
+    }
+
     @Override
     public List<User> getBaseOfUsers() {
-        log.info("Получен запрос в базу данных на получение всех пользователей");
+        log.debug("Получен запрос в базу данных на получение всех пользователей");
         return findMany(GET_ALL_USERS);
     }
 
+    @Override
+    public boolean isEmailUsed(String email) {
+        log.debug("Получен запрос в базу данных на проверку занятости электронной почты {}", email);
+        return Boolean.TRUE.equals(queryForObject(IS_EMAIL_USED, Boolean.class, email));
+    }
+
+    @Override
+    public boolean isLoginUsed(String login) {
+        log.debug("Получен запрос в базу данных на проверку занятости логина {}", login);
+        return Boolean.TRUE.equals(queryForObject(IS_LOGIN_USED, Boolean.class, login));
+    }
+
     @Override
     public void updateUser(User user) {
-        log.info("Получен запрос в базу данных на обновление пользователя с id = {}", user.getId());
-        update(UPDATE_USER, user.getLogin(), user.getName(), user.getEmail(), user.getBirthday(), user.getId());
-        log.info("Пользователь с id = {} был обновлен в базе данных", user.getId());
+        log.debug("Получен запрос в базу данных на обновление пользователя с id = {}", user.getId());
+        try {
+            update(UPDATE_USER, user.getLogin(), user.getName(), user.getEmail(), user.getBirthday(), user.getId());
+        } catch (DuplicateKeyException e) {
+            throw duplicateUserException(user);
+        }
+        cache.evict(user.getId());
+        identityMap.put(user.getId(), user);
+        log.debug("Пользователь с id = {} был обновлен в базе данных", user.getId());
     }
 
     @Override
     public void addUser(User user) {
-        log.info("Получен запрос в базу данных на добавление пользователя с id = {}", user.getId());
-        insert(ADD_USER, user.getId(), user.getLogin(), user.getName(), user.getEmail(), user.getBirthday());
-        log.info("Пользователь с id = {} был добавлен в базу данных", user.getId());
+        log.debug("Получен запрос в базу данных на добавление пользователя с логином {}", user.getLogin());
+        try {
+            user.setId(insertAndReturnId(ADD_USER, user.getLogin(), user.getName(), user.getEmail(), user.getBirthday()));
+        } catch (DuplicateKeyException e) {
+            throw duplicateUserException(user);
+        }
+        log.debug("Пользователь с id = {} был добавлен в базу данных", user.getId());
+    }
+
+    @Override
+    public void addUsers(List<User> users) {
+        log.debug("Получен запрос в базу данных на добавление {} пользователей", users.size());
+        List<User> usersWithId = users.stream().filter(user -> user.getId() != null).toList();
+        List<User> usersWithoutId = users.stream().filter(user -> user.getId() == null).toList();
+        batchUpdate(ADD_USER_WITH_ID, usersWithId.stream()
+                .map(user -> new Object[]{user.getId(), user.getLogin(), user.getName(), user.getEmail(), user.getBirthday()})
+                .toList());
+        List<Integer> ids = batchInsertAndReturnIds(ADD_USER, usersWithoutId.stream()
+                .map(user -> new Object[]{user.getLogin(), user.getName(), user.getEmail(), user.getBirthday()})
+                .toList());
+        for (int i = 0; i < ids.size(); i++) {
+            usersWithoutId.get(i).setId(ids.get(i));
+        }
+        log.debug("В базу данных было добавлено {} пользователей", users.size());
+    }
+
+    @Override
+    public void reserveIds(int maxId) {
+        log.debug("Получен запрос в базу данных на сдвиг генерации id пользователей за id = {}", maxId);
+        reserveIdentity("users", maxId);
     }
 
     @Override
     public void deleteUser(Integer userId) {
-        log.info("Получен запрос в базу данных на удаление пользователя id = {} ", userId);
-        delete(DELETE_USER, userId);
-        delete(DELETE_FRIENDS_WHEN_DELETE_USER, userId);
-        delete(DELETE_LIKES_WHEN_DELETE_USER, userId);
-        log.info("Пользователь с id = {} был удален из базы данных", userId);
+        log.debug("Получен запрос в базу данных на удаление пользователя id = {} ", userId);
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Integer> likedFilms = queryForList(GET_FILMS_LIKED_BY_USER, Integer.class, userId);
+            List<Integer> addedBy = queryForList(GET_USERS_WHO_ADDED_USER, Integer.class, userId);
+            delete(DELETE_LIKES_WHEN_DELETE_USER, userId);
+            batchUpdate(DECREMENT_LIKE_COUNT, likedFilms.stream().map(filmId -> new Object[]{filmId}).toList());
+            delete(DELETE_FRIENDS_WHEN_DELETE_USER, userId);
+            delete(DELETE_FRIEND_OF_WHEN_DELETE_USER, userId);
+            delete(DELETE_USER, userId);
+            likedFilms.forEach(popularityIndex::removeLike);
+            friendshipGraph.removeUser(userId);
+            addedBy.forEach(otherUserId -> friendshipGraph.removeFriendship(otherUserId, userId));
+            likesMatrix.removeUser(userId);
+        });
+        cache.evict(userId);
+        identityMap.evict(userId);
+        log.debug("Пользователь с id = {} был удален из базы данных", userId);
     }
 
+    /**
+     * Заявка друга подтверждается, если в базе есть неподтвержденная запись friendId -> userId, иначе вставляется
+     * новая запись userId -> friendId, если нет обратной. Результат определяется самой записью: 0 измененных строк
+     * или нарушение первичного ключа означают, что дружба уже есть.
+     */
     @Override
-    public void addFriendToUser(Integer userId, Integer friendId) {
-        log.info("Получен запрос в базу данных на добавление пользователем с id = {} друга с id = {}", userId, friendId);
-        if (getUserFriends(friendId).contains(getUser(userId))) {
-            insert(ADD_FRIEND_TO_USER_TRUE, userId, friendId);
-            log.info("Пользователь с id = {} добавил друга с id = {} в базу данных - дружба подтверждена", userId, friendId);
-        } else {
-            insert(ADD_FRIEND_TO_USER_FALSE, userId, friendId);
-            log.info("Пользователь с id = {} добавил друга с id = {} в базу данных - дружба не подтверждена", userId, friendId);
+    public boolean addFriendToUser(Integer userId, Integer friendId) {
+        log.debug("Получен запрос в базу данных на добавление пользователем с id = {} друга с id = {}", userId, friendId);
+        boolean added = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (update(CONFIRM_FRIENDSHIP, friendId, userId) > 0) {
+                friendshipGraph.confirmFriendship(friendId, userId);
+                log.debug("Пользователь с id = {} добавил друга с id = {} в базу данных - дружба подтверждена", userId, friendId);
+                return true;
+            }
+            try {
+                if (update(ADD_FRIEND_REQUEST, userId, friendId, friendId, userId) == 0) {
+                    return false;
+                }
+            } catch (DuplicateKeyException e) {
+                return false;
+            }
+            friendshipGraph.addFriendship(userId, friendId, false);
+            log.debug("Пользователь с id = {} добавил друга с id = {} в базу данных - дружба не подтверждена", userId, friendId);
+            return true;
+        }));
+        if (!added) {
+            log.debug("Пользователь с id = {} уже добавил друга с id = {} в базу данных", userId, friendId);
         }
+        return added;
+    }
+
+    @Override
+    public void addFriendships(List<Friendship> friendships) {
+        log.debug("Получен запрос в базу данных на добавление {} записей о дружбе", friendships.size());
+        batchUpdate(ADD_FRIENDSHIP, friendships.stream()
+                .map(friendship -> new Object[]{friendship.getUserId(), friendship.getFriendId(), friendship.isConfirmed()})
+                .toList());
+        friendshipGraph.addFriendships(friendships);
+        log.debug("В базу данных было добавлено {} записей о дружбе", friendships.size());
     }
 
     @Override
     public void deleteFriendFromUser(Integer userId, Integer friendId) {
-        log.info("Получен запрос в базу данных на удаление пользователем с id = {} друга с id = {}", userId, friendId);
-        if (getUserFriends(friendId).contains(getUser(userId))) {
-            delete(DELETE_FRIEND_FROM_USER, userId, friendId);
-            insert(ADD_FRIEND_TO_USER_FALSE, friendId, userId);
-            log.info("Пользователь с id = {} удалил друга из базы данных с id = {} - дружба стала неподтвержденной", userId, friendId);
+        log.debug("Получен запрос в базу данных на удаление пользователем с id = {} друга с id = {}", userId, friendId);
+        if (update(UNCONFIRM_FRIENDSHIP, friendId, userId) > 0) {
+            friendshipGraph.unconfirmFriendship(friendId, userId);
+            log.debug("Пользователь с id = {} удалил друга из базы данных с id = {} - дружба стала неподтвержденной", userId, friendId);
+        } else if (friendshipGraph.isFriend(friendId, userId)) {
+            transactionTemplate.executeWithoutResult(status -> {
+                delete(DELETE_FRIEND_FROM_USER, userId, friendId);
+                friendshipGraph.removeFriendship(userId, friendId);
+                insert(ADD_FRIEND_TO_USER_FALSE, friendId, userId);
+                friendshipGraph.addFriendship(friendId, userId, false);
+            });
+            log.debug("Пользователь с id = {} удалил друга из базы данных с id = {} - дружба стала неподтвержденной", userId, friendId);
         } else {
             delete(DELETE_FRIEND_FROM_USER, userId, friendId);
-            log.info("Пользователь с id = {} удалил друга из базы данных с id = {} - дружбы нет", userId, friendId);
+            friendshipGraph.removeFriendship(userId, friendId);
+            log.debug("Пользователь с id = {} удалил друга из базы данных с id = {} - дружбы нет", userId, friendId);
         }
     }
 
     @Override
     public List<User> getUserFriends(Integer userId) {
-        log.info("Получен запрос в базу данных на получение списка всех друзей пользователя с id = {}", userId);
-        return findMany(GET_USER_FRIENDS, userId, userId);
+        log.debug("Получен запрос в базу данных на получение списка всех друзей пользователя с id = {}", userId);
+        return findUsersByIds(friendshipGraph.getFriendIds(userId));
+    }
+
+    @Override
+    public boolean isFriend(Integer userId, Integer friendId) {
+        return friendshipGraph.isFriend(userId, friendId);
+    }
+
+    @Override
+    public List<User> getUserFriendsPage(Integer userId, Integer afterId, int limit) {
+        if (log.isDebugEnabled()) {
+            log.debug("Получен запрос в базу данных на получение {} друзей пользователя с id = {} после друга с id = {}", limit, userId, afterId);
+        }
+        int[] friendIds = friendshipGraph.getFriendIds(userId);
+        int from = Arrays.binarySearch(friendIds, afterId);
+        from = from >= 0 ? from + 1 : -from - 1;
+        return findUsersByIds(Arrays.copyOfRange(friendIds, from, Math.min(friendIds.length, from + limit)));
     }
 
     @Override
     public List<User> getCommonFriends(Integer userId, Integer otherUserId) {
-        log.info("Получен запрос в базу данных на получение списка общих друзей у пользователя с id = {} и пользователя с id = {}", userId, otherUserId);
-        return findMany(GET_COMMON_FRIENDS, userId, userId, otherUserId, otherUserId);
+        log.debug("Получен запрос в базу данных на получение списка общих друзей у пользователя с id = {} и пользователя с id = {}", userId, otherUserId);
+        return findUsersByIds(friendshipGraph.getCommonFriendIds(userId, otherUserId));
     }
 
+    @Override
+    public List<User> getRecommendedFriends(Integer userId, int count) {
+        log.debug("Получен запрос на получение {} рекомендуемых друзей для пользователя с id = {}", count, userId);
+        int[] recommendedIds = friendshipGraph.getRecommendedFriendIds(userId, count);
+        Map<Integer, User> users = findUsersByIds(recommendedIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return Arrays.stream(recommendedIds)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private List<User> findUsersByIds(int[] ids) {
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.length, "?"));
+        return findMany(String.format(GET_USERS_BY_IDS, placeholders), Arrays.stream(ids).boxed().toArray());
+    }
+
+    private ValidationException duplicateUserException(User user) {
+        log.error("Пользователь с логином: {} или электронной почтой: {} уже существует!", user.getLogin(), user.getEmail());
+        return new ValidationException(String.format("Пользователь с логином: %s или электронной почтой: %s уже существует!", user.getLogin(), user.getEmail()));
+    }
 }
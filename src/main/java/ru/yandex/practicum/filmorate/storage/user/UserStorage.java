@@ -1,26 +1,48 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     void addUser(User user);
 
+    void addUsers(List<User> users);
+
+    void reserveIds(int maxId);
+
     void deleteUser(Integer id);
 
     User getUser(Integer id);
 
     List<User> getBaseOfUsers();
 
+    List<User> getUsersPage(Integer afterId, int limit);
+
+    void streamUsers(Consumer<User> consumer);
+
+    boolean isEmailUsed(String email);
+
+    boolean isLoginUsed(String login);
+
     void updateUser(User user);
 
-    void addFriendToUser(Integer userId, Integer friendId);
+    boolean addFriendToUser(Integer userId, Integer friendId);
+
+    void addFriendships(List<Friendship> friendships);
 
     void deleteFriendFromUser(Integer userId, Integer friendId);
 
     List<User> getUserFriends(Integer userId);
 
+    boolean isFriend(Integer userId, Integer friendId);
+
+    List<User> getUserFriendsPage(Integer userId, Integer afterId, int limit);
+
     List<User> getCommonFriends(Integer userId, Integer otherUserId);
 
+    List<User> getRecommendedFriends(Integer userId, int count);
+
 }
@@ -1,11 +1,13 @@
 CREATE TABLE IF NOT EXISTS users (
-    id INTEGER PRIMARY KEY,
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     email VARCHAR(255) UNIQUE NOT NULL,
     login VARCHAR(40) NOT NULL,
     name VARCHAR(40) NOT NULL,
     birthday DATE NOT NULL
 );
 
+CREATE UNIQUE INDEX IF NOT EXISTS users_login_uindex ON users(login);
+
 CREATE TABLE IF NOT EXISTS genres (
     id INTEGER PRIMARY KEY,
     name VARCHAR(40) NOT NULL
@@ -19,7 +21,7 @@ CREATE TABLE IF NOT EXISTS MPA (
 );
 
 CREATE TABLE IF NOT EXISTS films (
-    id INTEGER PRIMARY KEY,
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     name VARCHAR(40) NOT NULL,
     description VARCHAR(200),
     releaseDate DATE,
@@ -45,4 +47,5 @@ CREATE TABLE IF NOT EXISTS likes (
     user_id INTEGER NOT NULL REFERENCES users(id),
     film_id INTEGER NOT NULL REFERENCES films(id),
     PRIMARY KEY (user_id, film_id)
-);
\ No newline at end of file
+);
+CREATE INDEX IF NOT EXISTS likes_film_user_index ON likes(film_id, user_id);
@@ -0,0 +1,3 @@
+CREATE INDEX IF NOT EXISTS films_mpa_like_count_index ON films(MPA_id, like_count DESC, id);
+CREATE INDEX IF NOT EXISTS films_release_date_index ON films(releaseDate);
+CREATE INDEX IF NOT EXISTS films_genres_genre_film_index ON films_genres(genre_id, film_id);
@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS friends_friend_user_index ON friends(friend_id, user_id);
@@ -1,6 +1,9 @@
 package ru.yandex.practicum.filmorate;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 import jakarta.validation.ValidatorFactory;
@@ -8,14 +11,21 @@ import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.controller.RecommendationController;
 import ru.yandex.practicum.filmorate.controller.UserController;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ThingIsAlreadyContain;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mappers.MpaRowMapper;
 import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
@@ -23,22 +33,44 @@ import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCaches;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.LikesMatrix;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({FilmService.class, UserDbStorage.class, UserController.class, FilmController.class, FilmDbStorage.class, FilmRowMapper.class, UserRowMapper.class, UserService.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({RecommendationController.class, FilmService.class, UserDbStorage.class, UserController.class, FilmController.class, FilmDbStorage.class, FilmRowMapper.class, UserRowMapper.class, UserService.class, FilmPopularityIndex.class, EntityCaches.class, FriendshipGraph.class, LikesMatrix.class, FilmSearchIndex.class, ReferenceCatalog.class, GenreDbStorage.class, GenreRowMapper.class, MpaDbStorage.class, MpaRowMapper.class, QueryMetrics.class, SimpleMeterRegistry.class})
 public class FilmControllerTests {
 
     private final FilmController filmController;
     private final UserController userController;
+    private final RecommendationController recommendationController;
     private final UserDbStorage userStorage;
+    private final FilmDbStorage filmStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityCaches entityCaches;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
     private Validator validator;
 
     @BeforeEach
@@ -83,7 +115,6 @@ public class FilmControllerTests {
     User getTestUser() {
         User user = new User();
         user.setName("Test name");
-        user.setId(userController.getUserService().getNextId());
         user.setLogin("TestLogin");
         user.setBirthday(LocalDate.of(2005, 12, 12));
         user.setEmail("test@gmail.com");
@@ -95,19 +126,74 @@ public class FilmControllerTests {
         Film film = getTestFilm();
         filmController.createFilm(film);
         Film newFilm = getSecondTestFilm();
-        newFilm.setId(1);
+        newFilm.setId(film.getId());
         assertEquals(newFilm, filmController.updateFilm(newFilm));
     }
 
+    @Test
+    public void updateFilmGenres() {
+        Film film = getTestFilm();
+        film.addGenre(new Genre(3, "Мультфильм"));
+        filmController.createFilm(film);
+        Film newFilm = getTestFilm();
+        newFilm.setId(film.getId());
+        newFilm.addGenre(new Genre(2, "Драма"));
+        filmController.updateFilm(newFilm);
+        assertEquals(Set.of(new Genre(1, "Комедия"), new Genre(2, "Драма")), filmController.getFilm(film.getId()).getGenres());
+    }
+
     @Test
     public void getAllFilms() {
         Film film = getTestFilm();
         filmController.createFilm(film);
         Film newFilm = getSecondTestFilm();
         filmController.createFilm(newFilm);
-        assertEquals(2, filmController.getFilms().size());
-        assertTrue(filmController.getFilms().stream().map(Film::getName).anyMatch(s -> s.equals(film.getName())));
-        assertTrue(filmController.getFilms().stream().map(Film::getName).anyMatch(s -> s.equals(newFilm.getName())));
+        assertEquals(2, filmController.getFilms(null, null).size());
+        assertTrue(filmController.getFilms(null, null).stream().map(Film::getName).anyMatch(s -> s.equals(film.getName())));
+        assertTrue(filmController.getFilms(null, null).stream().map(Film::getName).anyMatch(s -> s.equals(newFilm.getName())));
+    }
+
+    @Test
+    public void getAllFilmsWithGenresAndMpa() {
+        Film film = getTestFilm();
+        film.addGenre(new Genre(3, "Мультфильм"));
+        filmController.createFilm(film);
+        Film newFilm = getSecondTestFilm();
+        filmController.createFilm(newFilm);
+        assertTrue(filmController.getFilms(null, null).contains(film));
+        assertTrue(filmController.getFilms(null, null).contains(newFilm));
+    }
+
+    @Test
+    public void getFilmsAndLikersByPages() {
+        Film film = getTestFilm();
+        filmController.createFilm(film);
+        Film newFilm = getSecondTestFilm();
+        filmController.createFilm(newFilm);
+        User user = getTestUser();
+        userController.createUser(user);
+        filmController.addLikeToFilm(newFilm.getId(), user.getId());
+        assertEquals(List.of(film), filmController.getFilms(null, 1));
+        assertEquals(List.of(newFilm), filmController.getFilms(film.getId(), 1));
+        assertEquals(List.of(), filmController.getFilms(newFilm.getId(), 1));
+        assertEquals(List.of(user), filmController.getUserLikesOnFilm(newFilm.getId(), null, 10));
+        assertEquals(List.of(), filmController.getUserLikesOnFilm(newFilm.getId(), user.getId(), 10));
+    }
+
+    @Test
+    public void streamAllFilmsAsNdjson() throws IOException {
+        Film film = getTestFilm();
+        film.addGenre(new Genre(3, "Мультфильм"));
+        filmController.createFilm(film);
+        Film newFilm = getSecondTestFilm();
+        filmController.createFilm(newFilm);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        filmController.streamFilms().getBody().writeTo(output);
+        List<Film> films = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            films.add(objectMapper.readValue(line, Film.class));
+        }
+        assertEquals(List.of(film, newFilm), films);
     }
 
     @Test
@@ -149,9 +235,21 @@ public class FilmControllerTests {
         Film film = getTestFilm();
         filmController.createFilm(film);
         Film newFilm = getSecondTestFilm();
+        newFilm.setId(film.getId() + 1);
         assertThrows(NotFoundException.class, () -> filmController.updateFilm(newFilm));
     }
 
+    @Test
+    public void errorAddFilmWithUnknownGenreOrMpa() {
+        Film film = getTestFilm();
+        film.addGenre(new Genre(100, "Неизвестный жанр"));
+        assertThrows(NotFoundException.class, () -> filmController.createFilm(film));
+        Film newFilm = getSecondTestFilm();
+        newFilm.setMpa(new Mpa(100, "X", "Неизвестный рейтинг"));
+        assertThrows(NotFoundException.class, () -> filmController.createFilm(newFilm));
+        assertEquals(0, filmController.getFilms(null, null).size());
+    }
+
     @Test
     public void errorUpdateFilmWithNullId() {
         Film film = getTestFilm();
@@ -169,6 +267,22 @@ public class FilmControllerTests {
         assertEquals(film, newFilm);
     }
 
+    @Test
+    public void getCachedFilmAfterUpdate() {
+        Film film = getTestFilm();
+        filmController.createFilm(film);
+        filmController.getFilm(film.getId());
+        long hits = entityCaches.getFilms().getStats().getHits();
+        assertEquals(film, filmController.getFilm(film.getId()));
+        assertEquals(hits + 1, entityCaches.getFilms().getStats().getHits());
+        assertEquals(hits + 1, meterRegistry.get(EntityCaches.CACHE_GETS)
+                .tags("cache", "films", "result", "hit").functionCounter().count());
+        Film newFilm = getSecondTestFilm();
+        newFilm.setId(film.getId());
+        filmController.updateFilm(newFilm);
+        assertEquals(newFilm, filmController.getFilm(film.getId()));
+    }
+
     @Test
     public void errorGetFilmThatNotInStorage() {
         assertThrows(NotFoundException.class, () -> {
@@ -180,9 +294,9 @@ public class FilmControllerTests {
     public void deleteFilm() {
         Film film = getTestFilm();
         filmController.createFilm(film);
-        assertEquals(1, filmController.getFilms().size());
+        assertEquals(1, filmController.getFilms(null, null).size());
         filmController.deleteFilm(film.getId());
-        assertEquals(0, filmController.getFilms().size());
+        assertEquals(0, filmController.getFilms(null, null).size());
     }
 
     @Test
@@ -199,8 +313,126 @@ public class FilmControllerTests {
         User user = getTestUser();
         userController.createUser(user);
         filmController.addLikeToFilm(film.getId(), user.getId());
-        assertEquals(1, filmController.getPopularFilms(10).size());
-        assertTrue(filmController.getPopularFilms(10).stream().map(Film::getName).anyMatch(s -> s.equals(film.getName())));
+        assertEquals(1, filmController.getPopularFilms(10, null, null, null).size());
+        assertTrue(filmController.getPopularFilms(10, null, null, null).stream().map(Film::getName).anyMatch(s -> s.equals(film.getName())));
+    }
+
+    @Test
+    public void getPopularFilmsOrderedByLikes() {
+        Film film = getTestFilm();
+        filmController.createFilm(film);
+        Film newFilm = getSecondTestFilm();
+        filmController.createFilm(newFilm);
+        User user = getTestUser();
+        userController.createUser(user);
+        User secondUser = getTestUser();
+        secondUser.setLogin("SecondLogin");
+        secondUser.setEmail("second@gmail.com");
+        userController.createUser(secondUser);
+        filmController.addLikeToFilm(film.getId(), user.getId());
+        filmController.addLikeToFilm(newFilm.getId(), user.getId());
+        filmController.addLikeToFilm(newFilm.getId(), secondUser.getId());
+        assertEquals(newFilm.getId(), filmController.getPopularFilms(10, null, null, null).get(0).getId());
+        assertEquals(film.getId(), filmController.getPopularFilms(10, null, null, null).get(1).getId());
+        assertEquals(1, filmController.getPopularFilms(1, null, null, null).size());
+    }
+
+    @Test
+    public void getPopularFilmsByGenreMpaAndYear() {
+        Film film = getTestFilm();
+        filmController.createFilm(film);
+        Film newFilm = getSecondTestFilm();
+        filmController.createFilm(newFilm);
+        User user = getTestUser();
+        userController.createUser(user);
+        filmController.addLikeToFilm(film.getId(), user.getId());
+        filmController.addLikeToFilm(newFilm.getId(), user.getId());
+        assertEquals(List.of(film.getId()), filmController.getPopularFilms(10, 1, null, null).stream().map(Film::getId).toList());
+        assertEquals(List.of(newFilm.getId()), filmController.getPopularFilms(10, null, 2, null).stream().map(Film::getId).toList());
+        assertEquals(List.of(newFilm.getId()), filmController.getPopularFilms(10, null, null, 2020).stream().map(Film::getId).toList());
+        assertEquals(0, filmController.getPopularFilms(10, 1, 2, null).size());
+        Film updatedFilm = getTestFilm();
+        updatedFilm.setId(film.getId());
+        updatedFilm.getGenres().clear();
+        updatedFilm.addGenre(new Genre(2, "Драма"));
+        filmController.updateFilm(updatedFilm);
+        assertEquals(0, filmController.getPopularFilms(10, 1, null, null).size());
+        assertEquals(2, filmController.getPopularFilms(10, 2, null, null).size());
+        assertEquals(List.of(newFilm.getId()), filmController.getPopularFilms(10, 2, 2, 2020).stream().map(Film::getId).toList());
+        assertThrows(ValidationException.class, () -> filmController.getPopularFilms(10, 0, null, null));
+        assertThrows(ValidationException.class, () -> filmController.getPopularFilms(10, null, -1, null));
+    }
+
+    @Test
+    public void searchFilmsByNameAndDescription() {
+        Film film = getTestFilm();
+        film.setName("Ёлки");
+        film.setDescription("Новогодняя комедия");
+        filmController.createFilm(film);
+        Film newFilm = getSecondTestFilm();
+        newFilm.setName("Комедия положений");
+        newFilm.setDescription("Comedy of errors");
+        filmController.createFilm(newFilm);
+        assertEquals(List.of(film.getId()), filmController.searchFilms("елки", "name,description", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(newFilm.getId(), film.getId()), filmController.searchFilms("комед", "name,description", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(film.getId()), filmController.searchFilms("комедия", "description", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(newFilm.getId()), filmController.searchFilms("COMEDY err", "name,description", 10).stream().map(Film::getId).toList());
+        filmController.deleteFilm(newFilm.getId());
+        assertEquals(List.of(film.getId()), filmController.searchFilms("комед", "name,description", 10).stream().map(Film::getId).toList());
+        assertThrows(ValidationException.class, () -> filmController.searchFilms(" ", "name", 10));
+        assertThrows(ValidationException.class, () -> filmController.searchFilms("елки", "title", 10));
+    }
+
+    @Test
+    public void addLikeToFilmReturnsLikeCount() {
+        Film film = getTestFilm();
+        filmController.createFilm(film);
+        User user = getTestUser();
+        userController.createUser(user);
+        User secondUser = getTestUser();
+        secondUser.setLogin("SecondLogin");
+        secondUser.setEmail("second@gmail.com");
+        userController.createUser(secondUser);
+        assertEquals(1, filmController.addLikeToFilm(film.getId(), user.getId()));
+        assertEquals(2, filmController.addLikeToFilm(film.getId(), secondUser.getId()));
+        filmController.deleteLikeFromFilm(film.getId(), user.getId());
+        userController.deleteUser(secondUser.getId());
+        assertEquals(0, filmStorage.repairLikeCounts());
+    }
+
+    @Test
+    public void repairLikeCountsKeepsPopularityInSync() {
+        Film film = getTestFilm();
+        filmController.createFilm(film);
+        User user = getTestUser();
+        userController.createUser(user);
+        filmController.addLikeToFilm(film.getId(), user.getId());
+        jdbcTemplate.update("DELETE FROM likes WHERE film_id = ?", film.getId());
+        assertEquals(List.of(film.getId()), filmController.getPopularFilms(10, null, null, null).stream().map(Film::getId).toList());
+        assertEquals(1, filmStorage.repairLikeCounts());
+        assertEquals(List.of(), filmController.getPopularFilms(10, null, null, null));
+        assertEquals(0, filmStorage.repairLikeCounts());
+    }
+
+    @Test
+    public void getRecommendedFilmsFromSimilarUsers() {
+        Film film = getTestFilm();
+        filmController.createFilm(film);
+        Film newFilm = getSecondTestFilm();
+        filmController.createFilm(newFilm);
+        User user = getTestUser();
+        userController.createUser(user);
+        User secondUser = getTestUser();
+        secondUser.setLogin("SecondLogin");
+        secondUser.setEmail("second@gmail.com");
+        userController.createUser(secondUser);
+        filmController.addLikeToFilm(film.getId(), user.getId());
+        filmController.addLikeToFilm(film.getId(), secondUser.getId());
+        filmController.addLikeToFilm(newFilm.getId(), secondUser.getId());
+        assertEquals(List.of(newFilm), recommendationController.getRecommendedFilms(user.getId(), 10));
+        assertEquals(List.of(), recommendationController.getRecommendedFilms(secondUser.getId(), 10));
+        filmController.deleteLikeFromFilm(film.getId(), user.getId());
+        assertEquals(List.of(), recommendationController.getRecommendedFilms(user.getId(), 10));
     }
 
     @Test
@@ -221,6 +453,50 @@ public class FilmControllerTests {
         });
     }
 
+    @Test
+    public void errorAddLikeToFilmTwice() {
+        Film film = getTestFilm();
+        filmController.createFilm(film);
+        User user = getTestUser();
+        userController.createUser(user);
+        filmController.addLikeToFilm(film.getId(), user.getId());
+        assertThrows(ThingIsAlreadyContain.class, () -> {
+            filmController.addLikeToFilm(film.getId(), user.getId());
+        });
+        assertEquals(0, filmStorage.repairLikeCounts());
+    }
+
+    @Test
+    public void storageQueriesAreMeasured() {
+        Film film = getTestFilm();
+        filmController.createFilm(film);
+        User user = getTestUser();
+        userController.createUser(user);
+        long likesAdded = queryCount("ADD_LIKE_TO_FILM", "success");
+        long likesFailed = queryCount("ADD_LIKE_TO_FILM", "error");
+        double filmsByIdsRows = meterRegistry.get(QueryMetrics.QUERY_ROWS).tags("query", "GET_FILMS_BY_IDS").summary().totalAmount();
+        filmController.addLikeToFilm(film.getId(), user.getId());
+        assertThrows(ThingIsAlreadyContain.class, () -> {
+            filmController.addLikeToFilm(film.getId(), user.getId());
+        });
+        filmController.getPopularFilms(10, null, null, null);
+        assertEquals(likesAdded + 1, queryCount("ADD_LIKE_TO_FILM", "success"));
+        assertEquals(likesFailed + 1, queryCount("ADD_LIKE_TO_FILM", "error"));
+        assertTrue(meterRegistry.get(QueryMetrics.QUERY_ERRORS)
+                .tags("query", "ADD_LIKE_TO_FILM", "exception", "DuplicateKeyException").counter().count() >= 1);
+        assertEquals(filmsByIdsRows + 1,
+                meterRegistry.get(QueryMetrics.QUERY_ROWS).tags("query", "GET_FILMS_BY_IDS").summary().totalAmount());
+        for (String loader : List.of("FriendshipGraph", "LikesMatrix", "FilmPopularityIndex", "FilmSearchIndex")) {
+            assertTrue(meterRegistry.get(QueryMetrics.QUERY_TIMER).tags("repository", loader, "outcome", "success").timer().count() >= 1,
+                    "Загрузка " + loader + " при старте не измерена");
+        }
+    }
+
+    private long queryCount(String query, String outcome) {
+        return meterRegistry.get(QueryMetrics.QUERY_TIMER).tags("repository", "FilmDbStorage", "query", query, "outcome", outcome)
+                .timer().count();
+    }
+
     @Test
     public void removeLikeFromFilm() {
         Film film = getTestFilm();
@@ -228,9 +504,9 @@ public class FilmControllerTests {
         User user = getTestUser();
         userController.createUser(user);
         filmController.addLikeToFilm(film.getId(), user.getId());
-        assertEquals(1, filmController.getPopularFilms(20).size());
+        assertEquals(1, filmController.getPopularFilms(20, null, null, null).size());
         filmController.deleteLikeFromFilm(film.getId(), user.getId());
-        assertEquals(0, filmController.getPopularFilms(20).size());
+        assertEquals(0, filmController.getPopularFilms(20, null, null, null).size());
     }
 
     @Test
@@ -10,14 +10,18 @@ import org.springframework.context.annotation.Import;
 import ru.yandex.practicum.filmorate.controller.GenreController;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mappers.MpaRowMapper;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.ReferenceCatalog;
 import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
 
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({GenreController.class, GenreDbStorage.class, GenreRowMapper.class, GenreService.class})
+@Import({GenreController.class, GenreDbStorage.class, GenreRowMapper.class, GenreService.class, ReferenceCatalog.class, MpaDbStorage.class, MpaRowMapper.class, QueryMetrics.class})
 public class GenreControllerTests {
     private final GenreController genreController;
 
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.controller.ImportController;
+import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mappers.MpaRowMapper;
+import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportReport;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ImportService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.LikesMatrix;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest(properties = "filmorate.import.chunk-size=2")
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+@Import({ImportController.class, ImportService.class, FilmService.class, UserDbStorage.class, UserController.class, FilmController.class, FilmDbStorage.class, FilmRowMapper.class, UserRowMapper.class, UserService.class, FilmPopularityIndex.class, EntityCaches.class, FriendshipGraph.class, LikesMatrix.class, FilmSearchIndex.class, ReferenceCatalog.class, GenreDbStorage.class, GenreRowMapper.class, MpaDbStorage.class, MpaRowMapper.class, QueryMetrics.class})
+public class ImportControllerTests {
+
+    private final ImportController importController;
+    private final FilmController filmController;
+    private final UserController userController;
+
+    private static InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void importUsersInChunks() {
+        ImportReport report = importController.importUsers(ndjson(
+                "{\"login\":\"first\",\"email\":\"first@gmail.com\",\"birthday\":\"2000-01-01\"}",
+                "{\"login\":\"second\",\"name\":\"Второй\",\"email\":\"second@gmail.com\",\"birthday\":\"2000-01-02\"}",
+                "",
+                "{\"login\":\"third\",\"email\":\"third@gmail.com\",\"birthday\":\"2000-01-03\"}"));
+        assertEquals(3, report.getRows());
+        assertEquals(2, report.getChunks().size());
+        assertEquals(3, userController.getUsers(null, null).size());
+        assertTrue(userController.getUsers(null, null).stream().anyMatch(user -> user.getName().equals("first")));
+    }
+
+    @Test
+    public void errorImportFilmWithUnknownGenre() {
+        ValidationException exception = assertThrows(ValidationException.class, () -> importController.importFilms(ndjson(
+                "{\"name\":\"Фильм\",\"description\":\"Описание\",\"releaseDate\":\"2001-02-03\",\"duration\":90,\"mpa\":{\"id\":1}}",
+                "{\"name\":\"Фильм\",\"description\":\"Описание\",\"releaseDate\":\"2001-02-03\",\"duration\":90,\"mpa\":{\"id\":1},\"genres\":[{\"id\":999}]}")));
+        assertTrue(exception.getMessage().startsWith("Строка 2"));
+    }
+
+    @Test
+    public void importLikesUpdatesPopularFilms() {
+        User user = new User();
+        user.setLogin("TestLogin");
+        user.setEmail("test@gmail.com");
+        user.setBirthday(LocalDate.of(2005, 12, 12));
+        userController.createUser(user);
+        Film film = new Film();
+        film.setName("TestFilmName");
+        film.setDescription("TestFilmDescription");
+        film.setReleaseDate(LocalDate.of(2001, 2, 3));
+        film.setDuration(51);
+        film.setMpa(new Mpa(1, null, null));
+        filmController.createFilm(film);
+        ImportReport report = importController.importLikes(ndjson(
+                String.format("{\"filmId\":%d,\"userId\":%d}", film.getId(), user.getId())));
+        assertEquals(1, report.getRows());
+        assertEquals(film.getId(), filmController.getPopularFilms(10, null, null, null).get(0).getId());
+        assertThrows(ValidationException.class, () -> importController.importLikes(ndjson(
+                String.format("{\"filmId\":%d,\"userId\":%d}", film.getId(), user.getId()))));
+    }
+}
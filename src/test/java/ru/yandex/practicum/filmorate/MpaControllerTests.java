@@ -9,15 +9,19 @@ import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import ru.yandex.practicum.filmorate.controller.MpaController;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
 import ru.yandex.practicum.filmorate.mappers.MpaRowMapper;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
 
 @JdbcTest
 @AllArgsConstructor(onConstructor_ = @Autowired)
 @AutoConfigureTestDatabase
-@Import({MpaController.class, MpaService.class, MpaRowMapper.class, MpaDbStorage.class})
+@Import({MpaController.class, MpaService.class, MpaRowMapper.class, MpaDbStorage.class, ReferenceCatalog.class, GenreDbStorage.class, GenreRowMapper.class, QueryMetrics.class})
 public class MpaControllerTests {
     private final MpaController mpaController;
 
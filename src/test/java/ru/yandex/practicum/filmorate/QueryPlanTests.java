@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class QueryPlanTests {
+    private static final Set<String> FULL_SCANS = Set.of("SELECT_FILMS_WITH_MPA", "GET_ALL_FILMS", "STREAM_FILMS_WITH_GENRES",
+            "GET_GENRES_OF_ALL_FILMS", "GET_WRONG_LIKE_COUNTS", "GET_ALL_USERS", "STREAM_ALL_USERS");
+    private static final List<Class<?>> STORAGES = List.of(FilmDbStorage.class, UserDbStorage.class);
+    // Таблица читается целиком, если в плане H2 есть обращение к таблице или индексу без условия поиска:
+    // "/* PUBLIC.FILMS.tableScan */" или "/* PUBLIC.FILMS_LIKE_COUNT_INDEX */" вместо "/* PUBLIC.PRIMARY_KEY_2: ID = ?1 */".
+    private static final Pattern FULL_SCAN = Pattern.compile("/\\* PUBLIC\\.[^:*]+ \\*/");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void fullScanExemptionsExist() {
+        for (String name : FULL_SCANS) {
+            assertTrue(STORAGES.stream().anyMatch(storage -> hasField(storage, name)), "В хранилищах нет запроса " + name);
+        }
+    }
+
+    @Test
+    public void filmStorageQueriesUseIndexes() throws IllegalAccessException {
+        assertIndexesUsed(FilmDbStorage.class);
+    }
+
+    @Test
+    public void userStorageQueriesUseIndexes() throws IllegalAccessException {
+        assertIndexesUsed(UserDbStorage.class);
+    }
+
+    private void assertIndexesUsed(Class<?> storage) throws IllegalAccessException {
+        List<String> checked = new ArrayList<>();
+        for (Field field : storage.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) || field.getType() != String.class || FULL_SCANS.contains(field.getName())) {
+                continue;
+            }
+            field.setAccessible(true);
+            String sql = ((String) field.get(null)).replace("%s", "?");
+            String statement = sql.trim().split("\\s+")[0].toUpperCase();
+            if (!Set.of("SELECT", "UPDATE", "DELETE").contains(statement)) {
+                continue;
+            }
+            String plan = jdbcTemplate.query(connection -> connection.prepareStatement("EXPLAIN " + sql),
+                    (rs, rowNum) -> rs.getString(1)).get(0);
+            assertFalse(FULL_SCAN.matcher(plan).find(), field.getName() + " читает таблицу целиком: " + plan);
+            checked.add(field.getName());
+        }
+        assertFalse(checked.isEmpty());
+    }
+
+    private static boolean hasField(Class<?> storage, String name) {
+        try {
+            storage.getDeclaredField(name);
+            return true;
+        } catch (NoSuchFieldException ignore) {
+            return false;
+        }
+    }
+}
@@ -6,29 +6,53 @@ import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.yandex.practicum.filmorate.controller.RecommendationController;
 import ru.yandex.practicum.filmorate.controller.UserController;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ThingIsAlreadyContain;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.GenreRowMapper;
+import ru.yandex.practicum.filmorate.mappers.MpaRowMapper;
 import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.QueryMetrics;
+import ru.yandex.practicum.filmorate.storage.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCaches;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.LikesMatrix;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @JdbcTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({UserDbStorage.class, UserController.class, UserRowMapper.class, UserService.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({RecommendationController.class, FilmService.class, FilmDbStorage.class, FilmRowMapper.class, FilmSearchIndex.class, ReferenceCatalog.class, GenreDbStorage.class, GenreRowMapper.class, MpaDbStorage.class, MpaRowMapper.class, UserDbStorage.class, UserController.class, UserRowMapper.class, UserService.class, FilmPopularityIndex.class, EntityCaches.class, FriendshipGraph.class, LikesMatrix.class, QueryMetrics.class})
 public class UserControllerTests {
 
 
     private final UserController userController;
+    private final RecommendationController recommendationController;
     private Validator validator;
 
     @BeforeEach
@@ -60,8 +84,8 @@ public class UserControllerTests {
     public void addUser() {
         User user = getTestUser();
         userController.createUser(user);
-        assertEquals(1, userController.getUsers().size());
-        assertTrue(userController.getUsers().contains(user));
+        assertEquals(1, userController.getUsers(null, null).size());
+        assertTrue(userController.getUsers(null, null).contains(user));
     }
 
     @Test
@@ -69,7 +93,7 @@ public class UserControllerTests {
         User user = getTestUser();
         userController.createUser(user);
         User newUser = getSecondTestUser();
-        newUser.setId(1);
+        newUser.setId(user.getId());
         assertEquals(newUser, userController.updateUser(newUser));
     }
 
@@ -79,9 +103,28 @@ public class UserControllerTests {
         userController.createUser(user);
         User newUser = getSecondTestUser();
         userController.createUser(newUser);
-        assertEquals(2, userController.getUsers().size());
-        assertTrue(userController.getUsers().contains(user));
-        assertTrue(userController.getUsers().contains(newUser));
+        assertEquals(2, userController.getUsers(null, null).size());
+        assertTrue(userController.getUsers(null, null).contains(user));
+        assertTrue(userController.getUsers(null, null).contains(newUser));
+    }
+
+    @Test
+    public void getUsersAndFriendsByPages() {
+        User user = getTestUser();
+        userController.createUser(user);
+        User newUser = getSecondTestUser();
+        userController.createUser(newUser);
+        User thirdUser = getSecondTestUser();
+        thirdUser.setLogin("ThirdLogin");
+        thirdUser.setEmail("third@gmail.com");
+        userController.createUser(thirdUser);
+        assertEquals(List.of(user, newUser), userController.getUsers(null, 2));
+        assertEquals(List.of(thirdUser), userController.getUsers(newUser.getId(), 2));
+        userController.addFriendToUser(user.getId(), newUser.getId());
+        userController.addFriendToUser(user.getId(), thirdUser.getId());
+        assertEquals(List.of(newUser), userController.getUserFriends(user.getId(), null, 1));
+        assertEquals(List.of(thirdUser), userController.getUserFriends(user.getId(), newUser.getId(), 1));
+        assertThrows(ValidationException.class, () -> userController.getUsers(null, 0));
     }
 
     @Test
@@ -134,6 +177,18 @@ public class UserControllerTests {
         assertThrows(ValidationException.class, () -> userController.createUser(newUser));
     }
 
+    @Test
+    public void errorUpdateUserWithSameLogin() {
+        User user = getTestUser();
+        userController.createUser(user);
+        User newUser = getSecondTestUser();
+        userController.createUser(newUser);
+        User updatedUser = getSecondTestUser();
+        updatedUser.setId(newUser.getId());
+        updatedUser.setLogin(user.getLogin());
+        assertThrows(ValidationException.class, () -> userController.updateUser(updatedUser));
+    }
+
     @Test
     public void errorUpdateUserWithNullId() {
         User user = getTestUser();
@@ -148,6 +203,7 @@ public class UserControllerTests {
         User user = getTestUser();
         userController.createUser(user);
         User newUser = getSecondTestUser();
+        newUser.setId(user.getId() + 1);
         assertThrows(NotFoundException.class, () -> userController.updateUser(newUser));
     }
 
@@ -158,6 +214,20 @@ public class UserControllerTests {
         assertEquals(user, userController.getUser(user.getId()));
     }
 
+    @Test
+    public void getUserOnceWithinRequest() {
+        User user = getTestUser();
+        userController.createUser(user);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            User firstUser = userController.getUser(user.getId());
+            assertSame(firstUser, userController.getUser(user.getId()));
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+        assertNotSame(userController.getUser(user.getId()), userController.getUser(user.getId()));
+    }
+
     @Test
     public void errorGetUserWhichIsNotInStorage() {
         assertThrows(NotFoundException.class, () -> {
@@ -169,9 +239,9 @@ public class UserControllerTests {
     public void deleteUser() {
         User user = getTestUser();
         userController.createUser(user);
-        assertEquals(1, userController.getUsers().size());
+        assertEquals(1, userController.getUsers(null, null).size());
         userController.deleteUser(user.getId());
-        assertEquals(0, userController.getUsers().size());
+        assertEquals(0, userController.getUsers(null, null).size());
     }
 
     @Test
@@ -188,8 +258,8 @@ public class UserControllerTests {
         User newUser = getSecondTestUser();
         userController.createUser(newUser);
         userController.addFriendToUser(user.getId(), newUser.getId());
-        assertEquals(1, userController.getUserFriends(user.getId()).size());
-        assertEquals(0, userController.getUserFriends(newUser.getId()).size());
+        assertEquals(1, userController.getUserFriends(user.getId(), null, null).size());
+        assertEquals(0, userController.getUserFriends(newUser.getId(), null, null).size());
     }
 
     @Test
@@ -200,8 +270,13 @@ public class UserControllerTests {
         userController.createUser(newUser);
         userController.addFriendToUser(user.getId(), newUser.getId());
         userController.addFriendToUser(newUser.getId(), user.getId());
-        assertEquals(1, userController.getUserFriends(user.getId()).size());
-        assertEquals(0, userController.getUserFriends(newUser.getId()).size());
+        assertEquals(1, userController.getUserFriends(user.getId(), null, null).size());
+        assertEquals(1, userController.getUserFriends(newUser.getId(), null, null).size());
+        assertThrows(ThingIsAlreadyContain.class, () -> userController.addFriendToUser(newUser.getId(), user.getId()));
+        assertThrows(ThingIsAlreadyContain.class, () -> userController.addFriendToUser(user.getId(), newUser.getId()));
+        userController.deleteFriendFromUserFriends(newUser.getId(), user.getId());
+        assertEquals(1, userController.getUserFriends(user.getId(), null, null).size());
+        assertEquals(0, userController.getUserFriends(newUser.getId(), null, null).size());
     }
 
     @Test
@@ -209,10 +284,40 @@ public class UserControllerTests {
         User user = getTestUser();
         userController.createUser(user);
         assertThrows(NotFoundException.class, () -> {
-            userController.addFriendToUser(user.getId(), 2);
+            userController.addFriendToUser(user.getId(), user.getId() + 1);
         });
     }
 
+    @Test
+    public void deleteFriendFromUserFriends() {
+        User user = getTestUser();
+        userController.createUser(user);
+        User newUser = getSecondTestUser();
+        userController.createUser(newUser);
+        userController.addFriendToUser(user.getId(), newUser.getId());
+        userController.deleteFriendFromUserFriends(user.getId(), newUser.getId());
+        assertEquals(0, userController.getUserFriends(user.getId(), null, null).size());
+        assertEquals(String.format("У пользователя c id = %d нет друзей", user.getId()),
+                userController.deleteFriendFromUserFriends(user.getId(), newUser.getId()));
+    }
+
+    @Test
+    public void getRecommendedFriends() {
+        User user = getTestUser();
+        userController.createUser(user);
+        User newUser = getSecondTestUser();
+        userController.createUser(newUser);
+        User friendOfFriend = getSecondTestUser();
+        friendOfFriend.setLogin("FriendOfFriend");
+        friendOfFriend.setEmail("friendoffriend@gmail.com");
+        userController.createUser(friendOfFriend);
+        userController.addFriendToUser(user.getId(), newUser.getId());
+        userController.addFriendToUser(newUser.getId(), friendOfFriend.getId());
+        assertEquals(List.of(friendOfFriend), recommendationController.getRecommendedFriends(user.getId(), 10));
+        userController.addFriendToUser(user.getId(), friendOfFriend.getId());
+        assertEquals(List.of(), recommendationController.getRecommendedFriends(user.getId(), 10));
+    }
+
     @Test
     public void getCommonFriend() {
         User user = getTestUser();
@@ -221,7 +326,6 @@ public class UserControllerTests {
         userController.createUser(newUser);
         User commonFriend = new User();
         commonFriend.setName("Friend name");
-        commonFriend.setId(userController.getUserService().getNextId());
         commonFriend.setLogin("Friend");
         commonFriend.setBirthday(LocalDate.of(2005, 12, 12));
         commonFriend.setEmail("friend@gmail.com");
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.loadtest.SocialGraphGenerator;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ImportService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Приложение без веб-сервера на отдельной базе H2 в памяти, заполненной через массовую загрузку.
+ * Объем данных задается параметрами JMH, например -p users=100000 -p likesPerUser=50,
+ * а перекос распределения лайков и дружбы - параметром skew (0 - равномерное, 1 - закон Ципфа).
+ */
+@State(Scope.Benchmark)
+public class FilmorateState {
+    @Param("1000")
+    public int users;
+    @Param("1000")
+    public int films;
+    @Param("20")
+    public int likesPerUser;
+    @Param("20")
+    public int friendsPerUser;
+    @Param("0")
+    public double skew;
+    @Param("true")
+    public boolean cacheEnabled;
+
+    public ConfigurableApplicationContext context;
+    public FilmDbStorage filmStorage;
+    public UserDbStorage userStorage;
+    public FilmService filmService;
+    public UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:filmorate-benchmark;DB_CLOSE_DELAY=-1",
+                        "filmorate.cache.enabled=" + cacheEnabled,
+                        "logging.level.root=WARN")
+                .run();
+        filmStorage = context.getBean(FilmDbStorage.class);
+        userStorage = context.getBean(UserDbStorage.class);
+        filmService = context.getBean(FilmService.class);
+        userService = context.getBean(UserService.class);
+        seed(context.getBean(ImportService.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public int randomUserId() {
+        return ThreadLocalRandom.current().nextInt(users) + 1;
+    }
+
+    public int randomFilmId() {
+        return ThreadLocalRandom.current().nextInt(films) + 1;
+    }
+
+    private void seed(ImportService importService) {
+        SocialGraphGenerator generator = new SocialGraphGenerator(42, users, films, likesPerUser, friendsPerUser, skew);
+        importService.importUsers(ndjson(generator.users()));
+        importService.importFilms(ndjson(generator.films()));
+        importService.importLikes(ndjson(generator.likes()));
+        importService.importFriendships(ndjson(generator.friendships()));
+    }
+
+    private static ByteArrayInputStream ndjson(List<String> lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
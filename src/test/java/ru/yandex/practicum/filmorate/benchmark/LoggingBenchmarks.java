@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость логирования на горячих путях сервисов при разных уровнях логов приложения.
+ * Вывод консоли в форке JMH отбрасывается, поэтому измеряется то, что платят потоки запросов:
+ * проверка уровня, создание события и постановка его в очередь асинхронного аппендера.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingBenchmarks {
+    private static final String APPLICATION_LOGGER = "ru.yandex.practicum.filmorate";
+
+    @Param({"OFF", "INFO", "DEBUG"})
+    public String level;
+
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp(FilmorateState state) {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        state.context.getBean(LoggingSystem.class).setLogLevel(APPLICATION_LOGGER, LogLevel.valueOf(level));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public Film getFilm(FilmorateState state) {
+        return state.filmService.getFilm(state.randomFilmId());
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms(FilmorateState state) {
+        return state.filmService.getPopularFilms(10, null, null, null);
+    }
+
+    @Benchmark
+    public List<User> getUserFriends(FilmorateState state) {
+        return state.userService.getUserFriends(state.randomUserId());
+    }
+}
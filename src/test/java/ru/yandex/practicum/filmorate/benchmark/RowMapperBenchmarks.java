@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор одной строки результата маппером без обращения к базе данных.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowMapperBenchmarks {
+    private final FilmRowMapper filmMapper = new FilmRowMapper();
+    private final UserRowMapper userMapper = new UserRowMapper();
+    private SimpleResultSet filmRow;
+    private SimpleResultSet userRow;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        filmRow = new SimpleResultSet();
+        filmRow.addColumn("id", Types.INTEGER, 10, 0);
+        filmRow.addColumn("name", Types.VARCHAR, 40, 0);
+        filmRow.addColumn("description", Types.VARCHAR, 200, 0);
+        filmRow.addColumn("releaseDate", Types.DATE, 10, 0);
+        filmRow.addColumn("duration", Types.INTEGER, 10, 0);
+        filmRow.addColumn("MPA_id", Types.INTEGER, 10, 0);
+        filmRow.addColumn("mpa_name", Types.VARCHAR, 8, 0);
+        filmRow.addColumn("mpa_description", Types.VARCHAR, 80, 0);
+        filmRow.addRow(1, "Film 1", "Description of film 1", Date.valueOf("2000-01-01"), 100, 1, "G",
+                "у фильма нет возрастных ограничений");
+        filmRow.next();
+        userRow = new SimpleResultSet();
+        userRow.addColumn("id", Types.INTEGER, 10, 0);
+        userRow.addColumn("login", Types.VARCHAR, 40, 0);
+        userRow.addColumn("name", Types.VARCHAR, 40, 0);
+        userRow.addColumn("email", Types.VARCHAR, 255, 0);
+        userRow.addColumn("birthday", Types.DATE, 10, 0);
+        userRow.addRow(1, "user1", "User 1", "user1@mail.ru", Date.valueOf("1990-01-01"));
+        userRow.next();
+    }
+
+    @Benchmark
+    public Film mapFilm() throws SQLException {
+        return filmMapper.mapRow(filmRow, 0);
+    }
+
+    @Benchmark
+    public User mapUser() throws SQLException {
+        return userMapper.mapRow(userRow, 0);
+    }
+}
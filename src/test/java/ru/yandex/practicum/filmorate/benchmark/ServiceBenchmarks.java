@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.exception.ThingIsAlreadyContain;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции записи: каждый вызов ставит лайк новой паре пользователь - фильм и создает нового пользователя,
+ * поэтому данные растут в течение прогона так же, как при реальной нагрузке.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ServiceBenchmarks {
+    private long likes;
+    private long createdUsers;
+
+    @Benchmark
+    public Integer addLikeToFilm(FilmorateState state) {
+        long pair = likes++;
+        int userId = (int) (pair % state.users) + 1;
+        int filmId = (int) (pair / state.users % state.films) + 1;
+        try {
+            return state.filmService.addLikeToFilm(filmId, userId);
+        } catch (ThingIsAlreadyContain ignore) {
+            return null;
+        }
+    }
+
+    /**
+     * Лайк и его удаление для случайной пары: данные не растут, измеряется в основном обновление рейтингов
+     * популярности, в которых лежит фильм.
+     */
+    @Benchmark
+    public String likeAndUnlikeFilm(FilmorateState state) {
+        int filmId = state.randomFilmId();
+        int userId = state.randomUserId();
+        try {
+            state.filmService.addLikeToFilm(filmId, userId);
+        } catch (ThingIsAlreadyContain ignore) {
+            return null;
+        }
+        return state.filmService.deleteLikeFromFilm(filmId, userId);
+    }
+
+    @Benchmark
+    public User createUser(FilmorateState state) {
+        long number = createdUsers++;
+        User user = new User();
+        user.setLogin("bench" + Thread.currentThread().threadId() + "x" + number);
+        user.setEmail(user.getLogin() + "@mail.ru");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return state.userService.create(user);
+    }
+}
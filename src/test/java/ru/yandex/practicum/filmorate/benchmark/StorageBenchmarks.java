@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmarks {
+
+    @Benchmark
+    public List<Film> getPopularFilms(FilmorateState state) {
+        return state.filmStorage.getPopularFilms(10, null, null, null);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilmsByGenre(FilmorateState state) {
+        return state.filmStorage.getPopularFilms(10, 1, null, null);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilmsByGenreMpaAndYear(FilmorateState state) {
+        return state.filmStorage.getPopularFilms(10, 1, 1, 2000);
+    }
+
+    @Benchmark
+    public Film getFilm(FilmorateState state) {
+        return state.filmStorage.getFilm(state.randomFilmId());
+    }
+
+    @Benchmark
+    public List<User> getUserFriends(FilmorateState state) {
+        return state.userStorage.getUserFriends(state.randomUserId());
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(FilmorateState state) {
+        return state.userStorage.getCommonFriends(state.randomUserId(), state.randomUserId());
+    }
+}
@@ -0,0 +1,269 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Нагрузочный тест через HTTP: поднимает приложение на случайном порту с отдельной базой H2 в памяти,
+ * заполняет ее синтетическим социальным графом через /import и подает смешанную нагрузку
+ * на эндпоинты фильмов и пользователей с постоянной частотой запросов (открытая модель: следующий запрос
+ * отправляется по расписанию, не дожидаясь ответа на предыдущий). Задержка считается от запланированного
+ * времени отправки, поэтому очередь перед перегруженным сервером тоже попадает в перцентили.
+ * Параметры передаются в виде key=value, например: mvn -Pload-test -DskipTests verify -Dload.args="rps=500 duration=60".
+ */
+public class LoadTestHarness {
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("rps", "200");
+        DEFAULTS.put("duration", "30");
+        DEFAULTS.put("warmup", "10");
+        DEFAULTS.put("users", "10000");
+        DEFAULTS.put("films", "2000");
+        DEFAULTS.put("likesPerUser", "20");
+        DEFAULTS.put("friendsPerUser", "20");
+        DEFAULTS.put("skew", "1.0");
+        DEFAULTS.put("seed", "42");
+    }
+
+    private final Map<String, String> settings;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private SocialGraphGenerator generator;
+    private String baseUrl;
+
+    public LoadTestHarness(Map<String, String> settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2 || !DEFAULTS.containsKey(keyValue[0])) {
+                throw new IllegalArgumentException("Неизвестный параметр " + arg + ", допустимые: " + DEFAULTS.keySet());
+            }
+            settings.put(keyValue[0], keyValue[1]);
+        }
+        new LoadTestHarness(settings).run();
+    }
+
+    public void run() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .properties("server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:filmorate-load-test;DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN",
+                        "logging.level.org.zalando.logbook=WARN")
+                .run()) {
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            generator = new SocialGraphGenerator(longSetting("seed"), intSetting("users"), intSetting("films"),
+                    intSetting("likesPerUser"), intSetting("friendsPerUser"), doubleSetting("skew"));
+            System.out.println("Параметры: " + settings);
+            seed();
+            List<Operation> operations = workload();
+            replay(operations, intSetting("warmup"), false);
+            Map<String, Recorder> recorders = replay(operations, intSetting("duration"), true);
+            report(recorders, intSetting("duration"));
+        }
+    }
+
+    /**
+     * Смесь запросов: чтения преобладают, популярные фильмы и пользователи выбираются по тому же распределению,
+     * что и при генерации графа, поэтому запросы концентрируются на «горячих» строках.
+     * Повторный лайк возвращает ошибку 400 и учитывается как ошибка операции like.
+     */
+    private List<Operation> workload() {
+        int films = intSetting("films");
+        List<Operation> operations = new ArrayList<>();
+        operations.add(new Operation("popular", 20, random -> get("/films/popular?count=10")));
+        operations.add(new Operation("popularByGenre", 5, random ->
+                get("/films/popular?count=10&genreId=" + (random.nextInt(6) + 1))));
+        operations.add(new Operation("film", 20, random -> get("/films/" + generator.popularFilmId(random))));
+        operations.add(new Operation("search", 5, random ->
+                get("/films/search?q=film+" + (random.nextInt(films) + 1) + "&count=10")));
+        operations.add(new Operation("user", 10, random -> get("/users/" + generator.popularUserId(random))));
+        operations.add(new Operation("friends", 15, random -> get("/users/" + generator.anyUserId(random) + "/friends")));
+        operations.add(new Operation("commonFriends", 10, random -> get("/users/" + generator.anyUserId(random)
+                + "/friends/common/" + generator.popularUserId(random))));
+        operations.add(new Operation("recommendations", 5, random ->
+                get("/users/" + generator.anyUserId(random) + "/recommendations/films")));
+        operations.add(new Operation("like", 10, random -> request("/films/" + generator.popularFilmId(random)
+                + "/like/" + generator.anyUserId(random)).PUT(HttpRequest.BodyPublishers.noBody()).build()));
+        return operations;
+    }
+
+    private void seed() throws Exception {
+        long start = System.nanoTime();
+        post("/import/users", generator.users());
+        post("/import/films", generator.films());
+        post("/import/likes", generator.likes());
+        post("/import/friends", generator.friendships());
+        System.out.printf("Данные загружены за %d мс%n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void post(String path, List<String> lines) throws Exception {
+        HttpResponse<String> response = client.send(request(path)
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(String.join("\n", lines)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Загрузка " + path + " завершилась с кодом " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    private Map<String, Recorder> replay(List<Operation> operations, int seconds, boolean record) {
+        int rps = intSetting("rps");
+        long total = (long) rps * seconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        int totalWeight = operations.stream().mapToInt(Operation::weight).sum();
+        Random random = new Random(longSetting("seed") + (record ? 1 : 0));
+        Map<String, Recorder> recorders = new HashMap<>();
+        operations.forEach(operation -> recorders.put(operation.name(), new Recorder((int) (total * operation.weight() / totalWeight * 2 + 16))));
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long scheduled = start + i * intervalNanos;
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Operation operation = pick(operations, random.nextInt(totalWeight));
+            Recorder recorder = recorders.get(operation.name());
+            inFlight.add(client.sendAsync(operation.request().apply(random), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        if (record) {
+                            recorder.record(System.nanoTime() - scheduled, error == null && response.statusCode() < 300);
+                        }
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).orTimeout(60, TimeUnit.SECONDS).join();
+        return recorders;
+    }
+
+    private static Operation pick(List<Operation> operations, int point) {
+        for (Operation operation : operations) {
+            point -= operation.weight();
+            if (point < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private static void report(Map<String, Recorder> recorders, int seconds) {
+        System.out.printf("%-16s %8s %7s %9s %9s %9s %9s%n", "operation", "requests", "errors", "rps", "p50, ms", "p99, ms", "p999, ms");
+        Recorder all = new Recorder(recorders.values().stream().mapToInt(Recorder::size).sum());
+        recorders.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    printRow(entry.getKey(), entry.getValue(), seconds);
+                    all.addAll(entry.getValue());
+                });
+        printRow("total", all, seconds);
+    }
+
+    private static void printRow(String name, Recorder recorder, int seconds) {
+        long[] latencies = recorder.sorted();
+        System.out.printf("%-16s %8d %7d %9.1f %9.2f %9.2f %9.2f%n", name, latencies.length, recorder.errors(),
+                (double) latencies.length / seconds, percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999));
+    }
+
+    private static double percentile(long[] sortedLatencies, double quantile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+    }
+
+    private int intSetting(String key) {
+        return Integer.parseInt(settings.get(key));
+    }
+
+    private long longSetting(String key) {
+        return Long.parseLong(settings.get(key));
+    }
+
+    private double doubleSetting(String key) {
+        return Double.parseDouble(settings.get(key));
+    }
+
+    private record Operation(String name, int weight, Function<Random, HttpRequest> request) {
+    }
+
+    /**
+     * Задержки в наносекундах в растущем массиве; запись идет из потоков HTTP-клиента.
+     */
+    private static final class Recorder {
+        private long[] latencies;
+        private int size;
+        private int errors;
+
+        Recorder(int capacity) {
+            latencies = new long[Math.max(16, capacity)];
+        }
+
+        synchronized void record(long latencyNanos, boolean success) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        synchronized void addAll(Recorder other) {
+            long[] otherLatencies = other.sorted();
+            if (size + otherLatencies.length > latencies.length) {
+                latencies = Arrays.copyOf(latencies, size + otherLatencies.length);
+            }
+            System.arraycopy(otherLatencies, 0, latencies, size, otherLatencies.length);
+            size += otherLatencies.length;
+            errors += other.errors();
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized int errors() {
+            return errors;
+        }
+
+        synchronized long[] sorted() {
+            long[] result = Arrays.copyOf(latencies, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
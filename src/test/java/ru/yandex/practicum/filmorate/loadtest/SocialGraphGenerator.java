@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Генератор синтетических данных в формате массовой загрузки (NDJSON) со степенным распределением:
+ * фильмы выбираются для лайков, а пользователи - для дружбы по закону Ципфа с показателем skew,
+ * поэтому небольшое число фильмов-блокбастеров и пользователей-знаменитостей собирает большую часть связей.
+ * При skew = 0 распределение равномерное. Один и тот же seed дает одни и те же данные.
+ */
+public class SocialGraphGenerator {
+    private static final int MAX_ATTEMPTS_PER_ID = 50;
+    private final long seed;
+    private final int users;
+    private final int films;
+    private final int likesPerUser;
+    private final int friendsPerUser;
+    private final Zipf filmPopularity;
+    private final Zipf userPopularity;
+
+    public SocialGraphGenerator(long seed, int users, int films, int likesPerUser, int friendsPerUser, double skew) {
+        this.seed = seed;
+        this.users = users;
+        this.films = films;
+        this.likesPerUser = Math.min(likesPerUser, films);
+        this.friendsPerUser = Math.min(friendsPerUser, users - 1);
+        Random random = new Random(seed);
+        this.filmPopularity = new Zipf(films, skew, random);
+        this.userPopularity = new Zipf(users, skew, random);
+    }
+
+    public List<String> users() {
+        List<String> lines = new ArrayList<>(users);
+        for (int id = 1; id <= users; id++) {
+            lines.add(String.format("{\"email\":\"user%d@mail.ru\",\"login\":\"user%d\",\"name\":\"User %d\",\"birthday\":\"1990-01-01\"}",
+                    id, id, id));
+        }
+        return lines;
+    }
+
+    public List<String> films() {
+        Random random = new Random(seed + 1);
+        List<String> lines = new ArrayList<>(films);
+        for (int id = 1; id <= films; id++) {
+            lines.add(String.format("{\"name\":\"Film %d\",\"description\":\"Description of film %d\",\"releaseDate\":\"%d-01-01\","
+                            + "\"duration\":%d,\"mpa\":{\"id\":%d},\"genres\":[{\"id\":%d}]}",
+                    id, id, 1950 + random.nextInt(75), 60 + random.nextInt(120), random.nextInt(5) + 1, random.nextInt(6) + 1));
+        }
+        return lines;
+    }
+
+    public List<String> likes() {
+        Random random = new Random(seed + 2);
+        List<String> lines = new ArrayList<>(users * likesPerUser);
+        for (int userId = 1; userId <= users; userId++) {
+            for (int filmId : distinctIds(filmPopularity, random, likesPerUser, 0)) {
+                lines.add(String.format("{\"filmId\":%d,\"userId\":%d}", filmId, userId));
+            }
+        }
+        return lines;
+    }
+
+    public List<String> friendships() {
+        Random random = new Random(seed + 3);
+        List<String> lines = new ArrayList<>(users * friendsPerUser);
+        for (int userId = 1; userId <= users; userId++) {
+            for (int friendId : distinctIds(userPopularity, random, friendsPerUser, userId)) {
+                lines.add(String.format("{\"userId\":%d,\"friendId\":%d,\"confirmed\":false}", userId, friendId));
+            }
+        }
+        return lines;
+    }
+
+    public int popularFilmId(Random random) {
+        return filmPopularity.sample(random);
+    }
+
+    public int popularUserId(Random random) {
+        return userPopularity.sample(random);
+    }
+
+    public int anyUserId(Random random) {
+        return random.nextInt(users) + 1;
+    }
+
+    /**
+     * Различные id по распределению; при сильном перекосе редкие id могут не набраться, тогда id меньше count.
+     */
+    private static Set<Integer> distinctIds(Zipf distribution, Random random, int count, int excludedId) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (int attempt = 0; ids.size() < count && attempt < count * MAX_ATTEMPTS_PER_ID; attempt++) {
+            int id = distribution.sample(random);
+            if (id != excludedId) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Распределение Ципфа по рангам 1..size: вес ранга k равен 1 / k^skew.
+     * Ранги отображаются на id случайной перестановкой, чтобы популярные id не шли подряд с начала.
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+        private final int[] idByRank;
+
+        Zipf(int size, double skew, Random random) {
+            cumulative = new double[size];
+            double total = 0;
+            for (int rank = 1; rank <= size; rank++) {
+                total += 1 / Math.pow(rank, skew);
+                cumulative[rank - 1] = total;
+            }
+            idByRank = new int[size];
+            for (int i = 0; i < size; i++) {
+                idByRank[i] = i + 1;
+            }
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int id = idByRank[i];
+                idByRank[i] = idByRank[j];
+                idByRank[j] = id;
+            }
+        }
+
+        int sample(Random random) {
+            double point = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, point);
+            return idByRank[index >= 0 ? index : -index - 1];
+        }
+    }
+}